@@ -25,6 +25,14 @@ android {
             proguardFiles(getDefaultProguardFile("proguard-android-optimize.txt"), "proguard-rules.pro")
         }
     }
+    // 音频文件不压缩，播放时可以直接从安装包内映射读取
+    androidResources {
+        noCompress += listOf("mp3", "m4a", "aac", "ogg", "flac", "wav")
+    }
+    // Robolectric 测试需要合并后的资源和清单
+    testOptions {
+        unitTests.isIncludeAndroidResources = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
@@ -45,7 +53,12 @@ dependencies {
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     implementation(libs.exoplayer)
+    implementation(libs.exoplayer.mediasession)
+    implementation(libs.recyclerview)
+    implementation(libs.okhttp)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation(libs.mockwebserver)
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.example.musicplayer;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.AssetDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+// 对比 MappedAssetDataSource 和 ExoPlayer 自带的 AssetDataSource：顺序读取吞吐量和随机 seek 延迟
+// 需要 assets/music 下至少有一首不压缩的歌曲，没有时跳过
+@RunWith(AndroidJUnit4.class)
+public class MappedAssetDataSourceBenchmark {
+    private static final String TAG = "DataSourceBenchmark";
+    private static final int READ_BUFFER = 16 * 1024;
+    private static final int ROUNDS = 5;
+    private static final int SEEKS = 200;
+
+    private Context context;
+    private MappedAssetDataSource.Factory factory;
+    private Uri uri;
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        factory = new MappedAssetDataSource.Factory(context);
+        String[] files = context.getAssets().list(MediaLibrary.MUSIC_DIR);
+        assumeTrue(files != null && files.length > 0);
+        uri = Uri.parse("asset:///" + MediaLibrary.MUSIC_DIR + "/" + files[0]);
+    }
+
+    @Test
+    public void sameBytesAsAssetDataSource() throws IOException {
+        byte[] mapped = readAll(newMapped(), new DataSpec(uri));
+        byte[] stream = readAll(new AssetDataSource(context), new DataSpec(uri));
+        assertArrayEquals(stream, mapped);
+    }
+
+    // 越界的位置在通知监听器之前就被拒绝，监听器不会看到只有开始没有结束的传输
+    @Test
+    public void outOfRangeOpenNotifiesNoListener() throws IOException {
+        long length = readAll(newMapped(), new DataSpec(uri)).length;
+        int[] events = new int[1];
+        TransferListener listener = new TransferListener() {
+            @Override
+            public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+                events[0]++;
+            }
+
+            @Override
+            public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+                events[0]++;
+            }
+
+            @Override
+            public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork,
+                                           int bytesTransferred) {
+                events[0]++;
+            }
+
+            @Override
+            public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+                events[0]++;
+            }
+        };
+        DataSource source = newMapped();
+        source.addTransferListener(listener);
+        try {
+            source.open(new DataSpec.Builder().setUri(uri).setPosition(length + 1).build());
+            fail("opened past the end of the asset");
+        } catch (IOException expected) {
+            // ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE
+        } finally {
+            source.close();
+        }
+        assertEquals(0, events[0]);
+    }
+
+    @Test
+    public void readThroughput() throws IOException {
+        long mappedNs = 0;
+        long streamNs = 0;
+        long bytes = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            bytes = readAll(newMapped(), new DataSpec(uri)).length;
+            mappedNs += SystemClock.elapsedRealtimeNanos() - start;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            readAll(new AssetDataSource(context), new DataSpec(uri));
+            streamNs += SystemClock.elapsedRealtimeNanos() - start;
+        }
+        Log.i(TAG, "Sequential read of " + bytes + " bytes: mapped "
+                + mbPerSecond(bytes * ROUNDS, mappedNs) + " MB/s, asset stream "
+                + mbPerSecond(bytes * ROUNDS, streamNs) + " MB/s");
+    }
+
+    @Test
+    public void seekLatency() throws IOException {
+        long length = readAll(newMapped(), new DataSpec(uri)).length;
+        assumeTrue(length > READ_BUFFER);
+        Random random = new Random(42);
+        long[] positions = new long[SEEKS];
+        for (int i = 0; i < SEEKS; i++) {
+            positions[i] = (long) (random.nextDouble() * (length - READ_BUFFER));
+        }
+
+        // ExoPlayer seek 时会关闭数据源并从新位置重新 open，这里模拟同样的过程
+        long mappedNs = seekAll(newMapped(), positions);
+        long streamNs = seekAll(new AssetDataSource(context), positions);
+        Log.i(TAG, "Seek + first read (" + SEEKS + " seeks): mapped "
+                + mappedNs / SEEKS / 1000 + " us, asset stream " + streamNs / SEEKS / 1000 + " us");
+    }
+
+    // 和播放器一样从同一个 Factory 创建，共用它的映射缓存
+    private DataSource newMapped() {
+        return factory.createDataSource();
+    }
+
+    private long seekAll(DataSource source, long[] positions) throws IOException {
+        byte[] buffer = new byte[READ_BUFFER];
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (long position : positions) {
+            try {
+                source.open(new DataSpec.Builder().setUri(uri).setPosition(position).build());
+                int offset = 0;
+                while (offset < buffer.length) {
+                    int n = source.read(buffer, offset, buffer.length - offset);
+                    if (n == C.RESULT_END_OF_INPUT) {
+                        break;
+                    }
+                    offset += n;
+                }
+            } finally {
+                source.close();
+            }
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private static byte[] readAll(DataSource source, DataSpec dataSpec) throws IOException {
+        try {
+            long length = source.open(dataSpec);
+            byte[] result = new byte[(int) length];
+            int offset = 0;
+            while (offset < result.length) {
+                int n = source.read(result, offset, Math.min(READ_BUFFER, result.length - offset));
+                if (n == C.RESULT_END_OF_INPUT) {
+                    break;
+                }
+                offset += n;
+            }
+            assertEquals(result.length, offset);
+            return result;
+        } finally {
+            source.close();
+        }
+    }
+
+    private static long mbPerSecond(long bytes, long nanos) {
+        return nanos == 0 ? 0 : bytes * 1000L / nanos; // bytes/ns * 1000 = MB/s
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.musicplayer;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.MediaItem;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+// 1k/10k/50k 首曲库的冷启动耗时和堆占用：PlayQueue 分页窗口 + 随机播放 对比 把整个曲库放进播放器
+@RunWith(AndroidJUnit4.class)
+public class PlayQueueBenchmark {
+    private static final String TAG = "PlayQueueBenchmark";
+    private static final int[] SIZES = {1_000, 10_000, 50_000};
+
+    @Test
+    public void coldStartAndHeap() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        for (int size : SIZES) {
+            List<Track> tracks = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String name = "track" + i + ".mp3";
+                tracks.add(new Track(i, name, "track" + i, Uri.parse("asset:///music/" + name)));
+            }
+            // 播放器要在有 Looper 的线程上创建和调用
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+                measureQueue(context, tracks);
+                measureFullList(context, tracks);
+            });
+        }
+    }
+
+    private static void measureQueue(Context context, List<Track> tracks) {
+        ExoPlayer player = new ExoPlayer.Builder(context).build();
+        try {
+            long heapBefore = usedHeap();
+            long start = SystemClock.elapsedRealtimeNanos();
+            PlayQueue queue = new PlayQueue(player);
+            queue.setTracks(tracks, 0);
+            long loadUs = (SystemClock.elapsedRealtimeNanos() - start) / 1000;
+            start = SystemClock.elapsedRealtimeNanos();
+            queue.setShuffleEnabled(true);
+            long shuffleUs = (SystemClock.elapsedRealtimeNanos() - start) / 1000;
+            long heap = usedHeap() - heapBefore;
+            assertTrue(player.getMediaItemCount() <= PlayQueue.MAX_WINDOW);
+            Log.i(TAG, tracks.size() + " tracks, PlayQueue: load " + loadUs + "us, shuffle on " + shuffleUs
+                    + "us, " + player.getMediaItemCount() + " media items, heap +" + heap / 1024 + "KB");
+        } finally {
+            player.release();
+        }
+    }
+
+    // 对照：所有 MediaItem 一次放进播放器，由 ExoPlayer 的 DefaultShuffleOrder 洗牌
+    private static void measureFullList(Context context, List<Track> tracks) {
+        ExoPlayer player = new ExoPlayer.Builder(context).build();
+        try {
+            long heapBefore = usedHeap();
+            long start = SystemClock.elapsedRealtimeNanos();
+            List<MediaItem> items = new ArrayList<>(tracks.size());
+            for (Track track : tracks) {
+                items.add(new MediaItem.Builder()
+                        .setMediaId(String.valueOf(track.getId()))
+                        .setUri(track.getUri())
+                        .build());
+            }
+            player.setMediaItems(items);
+            long loadUs = (SystemClock.elapsedRealtimeNanos() - start) / 1000;
+            start = SystemClock.elapsedRealtimeNanos();
+            player.setShuffleModeEnabled(true);
+            long shuffleUs = (SystemClock.elapsedRealtimeNanos() - start) / 1000;
+            long heap = usedHeap() - heapBefore;
+            Log.i(TAG, tracks.size() + " tracks, full list: load " + loadUs + "us, shuffle on " + shuffleUs
+                    + "us, " + player.getMediaItemCount() + " media items, heap +" + heap / 1024 + "KB");
+        } finally {
+            player.release();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.musicplayer;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.exoplayer2.Player;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// 快照写入/读取耗时，对照没有快照时的恢复路径：先扫描 assets/music 建曲库，再从第一首开始
+@RunWith(AndroidJUnit4.class)
+public class PlaybackStateStoreBenchmark {
+    private static final String TAG = "PlaybackStateBench";
+    private static final int ITERATIONS = 200;
+
+    private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    private final PlaybackStateStore store = new PlaybackStateStore(context);
+
+    @After
+    public void tearDown() {
+        store.clear();
+    }
+
+    @Test
+    public void roundTrip() {
+        store.clear();
+        assertNull(store.read());
+        store.write(new PlaybackStateStore.State("晴天.mp3", "content://media/external/audio/media/42",
+                123_456, Player.REPEAT_MODE_ONE, true));
+        PlaybackStateStore.State state = store.read();
+        assertNotNull(state);
+        assertEquals("晴天.mp3", state.fileName);
+        assertEquals("content://media/external/audio/media/42", state.uri);
+        assertEquals(123_456, state.position);
+        assertEquals(Player.REPEAT_MODE_ONE, state.repeatMode);
+        assertTrue(state.shuffleEnabled);
+    }
+
+    @Test
+    public void snapshotVersusLibraryScan() throws Exception {
+        PlaybackStateStore.State state = new PlaybackStateStore.State("track.mp3",
+                "asset:///music/track.mp3", 60_000, Player.REPEAT_MODE_ALL, false);
+        store.write(state); // 预热
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            store.write(state);
+        }
+        long writeUs = (SystemClock.elapsedRealtimeNanos() - start) / 1000 / ITERATIONS;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertNotNull(store.read());
+        }
+        long readUs = (SystemClock.elapsedRealtimeNanos() - start) / 1000 / ITERATIONS;
+
+        // 原来的恢复路径：每次冷启动都要列出 assets/music 并建好曲库，之后才有第一首可播
+        int tracks = 0;
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            String[] files = context.getAssets().list(MediaLibrary.MUSIC_DIR);
+            tracks = MediaLibrary.fromFileNames(files != null ? files : new String[0]).size();
+        }
+        long scanUs = (SystemClock.elapsedRealtimeNanos() - start) / 1000 / ITERATIONS;
+
+        Log.i(TAG, "Snapshot write " + writeUs + "us, read " + readUs + "us; library scan of " + tracks
+                + " assets " + scanUs + "us");
+        // 快照只有几十字节，读一次应远低于一帧
+        assertTrue("read took " + readUs + "us", readUs < 16_000);
+    }
+}
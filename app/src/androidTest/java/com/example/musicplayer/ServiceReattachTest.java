@@ -0,0 +1,99 @@
+package com.example.musicplayer;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.IBinder;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.exoplayer2.ExoPlayer;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+// 控制端解绑再绑定（旋转屏幕、重新进入）的耗时：Service 还在时应复用同一个已准备好的播放器
+@RunWith(AndroidJUnit4.class)
+public class ServiceReattachTest {
+    private static final String TAG = "ServiceReattachTest";
+    private static final int ROUNDS = 20;
+    private static final long TIMEOUT_S = 10;
+
+    private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    private Connection owner;
+
+    // 记录连上的 Service 和从 bindService 到 onServiceConnected 的耗时
+    private static class Connection implements ServiceConnection {
+        final CountDownLatch connected = new CountDownLatch(1);
+        long bindStartNs;
+        volatile long attachUs = -1;
+        volatile MusicService service;
+
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            attachUs = (SystemClock.elapsedRealtimeNanos() - bindStartNs) / 1000;
+            service = ((MusicService.LocalBinder) binder).getService();
+            connected.countDown();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+        }
+    }
+
+    private Connection bind() throws InterruptedException {
+        Connection connection = new Connection();
+        connection.bindStartNs = SystemClock.elapsedRealtimeNanos();
+        assertTrue(context.bindService(new Intent(context, MusicService.class), connection,
+                Context.BIND_AUTO_CREATE));
+        assertTrue(connection.connected.await(TIMEOUT_S, TimeUnit.SECONDS));
+        return connection;
+    }
+
+    @After
+    public void tearDown() {
+        if (owner != null) {
+            context.unbindService(owner);
+        }
+    }
+
+    @Test
+    public void reattachReusesPreparedPlayer() throws Exception {
+        // 第一次绑定创建 Service，并等曲库加载、播放器准备好；这个绑定一直保持，相当于 Service 在运行
+        owner = bind();
+        MusicService service = owner.service;
+        CountDownLatch ready = new CountDownLatch(1);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> service.whenReady(s -> ready.countDown()));
+        assertTrue(ready.await(TIMEOUT_S, TimeUnit.SECONDS));
+        ExoPlayer player = service.player;
+        assertNotNull(player);
+        Log.i(TAG, "Cold attach " + owner.attachUs + "us, startup " + service.getStartupTime() + "ms");
+
+        long totalUs = 0;
+        long maxUs = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            Connection connection = bind();
+            assertSame(service, connection.service);
+            assertSame(player, connection.service.player);
+            assertTrue(connection.service.isReady());
+            totalUs += connection.attachUs;
+            maxUs = Math.max(maxUs, connection.attachUs);
+            context.unbindService(connection);
+        }
+        Log.i(TAG, "Re-attach over " + ROUNDS + " rounds: avg " + totalUs / ROUNDS + "us, max " + maxUs + "us");
+        assertTrue("re-attach took " + maxUs + "us", maxUs < 500_000);
+    }
+}
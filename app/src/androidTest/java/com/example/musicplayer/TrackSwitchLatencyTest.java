@@ -0,0 +1,125 @@
+package com.example.musicplayer;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.IBinder;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+// 切歌后 getLastTrackSwitchLatency 应记录从切歌命令到新歌真正出声的耗时
+@RunWith(AndroidJUnit4.class)
+public class TrackSwitchLatencyTest {
+    private static final String TAG = "TrackSwitchLatencyTest";
+    private static final long TIMEOUT_MS = 10_000;
+    private static final long CROSSFADE_MS = 400;
+
+    private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    private volatile MusicService service;
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            service = ((MusicService.LocalBinder) binder).getService();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+        }
+    };
+
+    private void onMain(Runnable action) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(action);
+    }
+
+    private long latency() {
+        AtomicLong value = new AtomicLong();
+        onMain(() -> value.set(service.getLastTrackSwitchLatency()));
+        return value.get();
+    }
+
+    private boolean playing() {
+        AtomicLong value = new AtomicLong();
+        onMain(() -> value.set(service.isPlaying() ? 1 : 0));
+        return value.get() == 1;
+    }
+
+    // 轮询到 latency 变成和 previous 不同的非负值，超时返回 -1
+    private long awaitLatency(long previous) {
+        long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MS;
+        while (SystemClock.elapsedRealtime() < deadline) {
+            long value = latency();
+            if (value >= 0 && value != previous) {
+                return value;
+            }
+            SystemClock.sleep(20);
+        }
+        return -1;
+    }
+
+    @After
+    public void tearDown() {
+        if (service != null) {
+            onMain(() -> {
+                service.setCrossfadeDuration(0);
+                service.pause();
+            });
+            context.unbindService(connection);
+        }
+    }
+
+    @Test
+    public void switchLatencyIsRecorded() throws Exception {
+        assertTrue(context.bindService(new Intent(context, MusicService.class), connection,
+                Context.BIND_AUTO_CREATE));
+        long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MS;
+        while (service == null && SystemClock.elapsedRealtime() < deadline) {
+            SystemClock.sleep(20);
+        }
+        assertTrue(service != null);
+        CountDownLatch ready = new CountDownLatch(1);
+        onMain(() -> service.whenReady(s -> ready.countDown()));
+        assertTrue(ready.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        // 需要至少两首歌才能切换
+        assumeTrue(service.getTracks().size() >= 2);
+
+        // 直接切歌：新歌开始出声后记录耗时
+        long before = latency();
+        onMain(() -> {
+            service.setCrossfadeDuration(0);
+            service.playTrack(0);
+        });
+        long direct = awaitLatency(before);
+        assertTrue("no latency recorded after playTrack", direct >= 0);
+
+        // 淡入淡出切歌：耗时从命令开始算，包含前一半的淡出
+        deadline = SystemClock.elapsedRealtime() + TIMEOUT_MS;
+        while (!playing() && SystemClock.elapsedRealtime() < deadline) {
+            SystemClock.sleep(20);
+        }
+        assertTrue(playing());
+        onMain(() -> {
+            service.setCrossfadeDuration(CROSSFADE_MS);
+            service.playNextTrack();
+        });
+        long faded = awaitLatency(direct);
+        Log.i(TAG, "Switch latency: direct " + direct + "ms, with " + CROSSFADE_MS + "ms crossfade " + faded + "ms");
+        assertTrue("crossfade switch latency " + faded + "ms", faded >= CROSSFADE_MS / 2);
+    }
+}
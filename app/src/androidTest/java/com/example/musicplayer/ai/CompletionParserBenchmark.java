@@ -0,0 +1,91 @@
+package com.example.musicplayer.ai;
+
+import android.content.res.AssetManager;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+// 用 assets/completions 下保存的 chat completions 响应，对比流式解析和原来的 String + JSONObject 解析
+@RunWith(AndroidJUnit4.class)
+public class CompletionParserBenchmark {
+    private static final String TAG = "CompletionParserBench";
+    private static final String[] FIXTURES = {
+            "completions/completion_short.json",
+            "completions/completion_long.json",
+            "completions/completion_logprobs.json",
+    };
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+
+    private interface Parser {
+        String parse(byte[] body) throws Exception;
+    }
+
+    // 原来的做法：整个响应读成 String，再建完整的 JSONObject 树
+    private static final Parser JSON_OBJECT = body -> new JSONObject(new String(body, StandardCharsets.UTF_8))
+            .getJSONArray("choices")
+            .getJSONObject(0)
+            .getJSONObject("message")
+            .getString("content");
+
+    private static final Parser STREAMING = body ->
+            CompletionParser.readMessageContent(new ByteArrayInputStream(body));
+
+    private static byte[] readFixture(String path) throws IOException {
+        AssetManager assets = InstrumentationRegistry.getInstrumentation().getContext().getAssets();
+        try (InputStream in = assets.open(path)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    // 返回 {平均耗时 us, 平均分配字节}
+    @SuppressWarnings("deprecation")
+    private static long[] measure(Parser parser, byte[] body) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            parser.parse(body);
+        }
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parser.parse(body);
+        }
+        long elapsedNs = SystemClock.elapsedRealtimeNanos() - start;
+        Debug.stopAllocCounting();
+        return new long[]{elapsedNs / ITERATIONS / 1000, Debug.getThreadAllocSize() / ITERATIONS};
+    }
+
+    @Test
+    public void streamingVersusJsonObject() throws Exception {
+        for (String fixture : FIXTURES) {
+            byte[] body = readFixture(fixture);
+            assertEquals(JSON_OBJECT.parse(body), STREAMING.parse(body));
+            long[] tree = measure(JSON_OBJECT, body);
+            long[] stream = measure(STREAMING, body);
+            Log.i(TAG, fixture + " (" + body.length / 1024 + "KB): JSONObject " + tree[0] + "us/"
+                    + tree[1] / 1024 + "KB, JsonReader " + stream[0] + "us/" + stream[1] / 1024 + "KB per parse");
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.musicplayer.ai;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.musicplayer.MediaLibrary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// 在本地 MockWebServer 上验证助手的历史窗口、流式回复、请求合并和取消
+@RunWith(AndroidJUnit4.class)
+public class MusicAssistantTest {
+    private static final long TIMEOUT_S = 10;
+
+    private MockWebServer server;
+    private Context context;
+    private final List<MusicAssistant> assistants = new ArrayList<>();
+
+    // 记录回调结果，收到回复或错误后放行
+    private static class Result implements MusicAssistant.StreamCallback {
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<String> partials = new CopyOnWriteArrayList<>();
+        volatile String response;
+        volatile String error;
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            partials.add(partialResponse);
+        }
+
+        @Override
+        public void onResponse(String response) {
+            this.response = response;
+            done.countDown();
+        }
+
+        @Override
+        public void onError(String errorMessage) {
+            this.error = errorMessage;
+            done.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return done.await(TIMEOUT_S, TimeUnit.SECONDS);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        ResponseCache.getInstance(context).clear(); // 避免上一次运行的缓存命中
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (MusicAssistant assistant : assistants) {
+            assistant.release();
+        }
+        server.shutdown();
+    }
+
+    private MusicAssistant newAssistant(int historyCharBudget) {
+        MusicAssistant assistant = new MusicAssistant(context, null, "test-key",
+                server.url("/v1/chat/completions").toString(), historyCharBudget,
+                new RetryPolicy(3, 10, 50, new Random(1)), new CircuitBreaker());
+        assistants.add(assistant);
+        return assistant;
+    }
+
+    private static MockResponse completion(String content) {
+        return completion(content, "stop");
+    }
+
+    private static MockResponse completion(String content, String finishReason) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"id\":\"x\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\""
+                        + content + "\"},\"finish_reason\":\"" + finishReason + "\"}]}");
+    }
+
+    private String ask(MusicAssistant assistant, String question) throws InterruptedException {
+        Result result = new Result();
+        assistant.chat(question, result);
+        assertTrue(result.await());
+        return result.response;
+    }
+
+    // release() 关闭后台线程后，同一个助手再提问时重新创建
+    @Test
+    public void askAfterRelease() throws Exception {
+        server.enqueue(completion("第一次回复"));
+        server.enqueue(completion("第二次回复"));
+        MusicAssistant assistant = newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET);
+        assertEquals("第一次回复", ask(assistant, "第一个问题"));
+        assistant.release();
+        assertEquals("第二次回复", ask(assistant, "第二个问题"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    // 每个助手默认有自己的熔断器，不会受其他实例的失败影响
+    @Test
+    public void circuitBreakerIsPerInstance() {
+        MusicAssistant first = new MusicAssistant(context, null, "test-key",
+                server.url("/v1/chat/completions").toString(), ChatHistory.DEFAULT_CHAR_BUDGET);
+        MusicAssistant second = new MusicAssistant(context, null, "test-key",
+                server.url("/v1/chat/completions").toString(), ChatHistory.DEFAULT_CHAR_BUDGET);
+        assistants.add(first);
+        assistants.add(second);
+        assertNotSame(first.getCircuitBreaker(), second.getCircuitBreaker());
+    }
+
+    // 历史超过字符预算后从最早的一轮开始丢弃，请求体不再随对话轮数增长
+    @Test
+    public void historyStaysWithinBudget() throws Exception {
+        int budget = 600;
+        MusicAssistant assistant = newAssistant(budget);
+        String reply = "这是一段用来占用历史预算的回复内容，重复几次让它足够长。这是一段用来占用历史预算的回复内容。";
+        int turns = 8;
+        for (int i = 0; i < turns; i++) {
+            server.enqueue(completion(reply));
+        }
+        for (int i = 0; i < turns; i++) {
+            Result result = new Result();
+            assistant.chat("第 " + i + " 个问题", result);
+            assertTrue(result.await());
+            assertEquals(reply, result.response);
+            assertTrue(assistant.getChatHistory().getTotalChars() <= budget);
+        }
+        assertTrue(assistant.getChatHistory().getEvictedMessages() > 0);
+
+        String lastBody = null;
+        for (int i = 0; i < turns; i++) {
+            RecordedRequest request = server.takeRequest(TIMEOUT_S, TimeUnit.SECONDS);
+            lastBody = request.getBody().readUtf8();
+        }
+        assertTrue(lastBody.contains("第 " + (turns - 1) + " 个问题"));
+        assertFalse(lastBody.contains("第 0 个问题"));
+    }
+
+    // SSE 回复按时间节流回调部分文本，最后拿到完整文本
+    @Test
+    public void streamDeliversPartialResponses() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody("data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n\n"
+                        + "data: {\"choices\":[{\"delta\":{\"content\":\"推荐\"}}]}\n\n"
+                        + ": keep-alive\n\n"
+                        + "data: {\"choices\":[{\"delta\":{\"content\":\"一首歌\"}}]}\n\n"
+                        + "data: [DONE]\n\n"));
+        MusicAssistant assistant = newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET);
+        Result result = new Result();
+        assistant.chatStream("随便推荐一首", result);
+        assertTrue(result.await());
+        assertEquals("推荐一首歌", result.response);
+        assertFalse(result.partials.isEmpty());
+        assertEquals("推荐", result.partials.get(0));
+        assertTrue(result.response.startsWith(result.partials.get(result.partials.size() - 1)));
+        assertTrue(assistant.getTimeToFirstToken() >= 0);
+        assertTrue(server.takeRequest().getBody().readUtf8().contains("\"stream\":true"));
+    }
+
+    // 没有 [DONE] 就断开的流（包括空响应）按错误处理，不完整的回复不进历史也不写入缓存
+    @Test
+    public void truncatedStreamIsNotCached() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody("data: {\"choices\":[{\"delta\":{\"content\":\"只说了一半\"}}]}\n\n"));
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(""));
+        MusicAssistant assistant = newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET);
+        // 第一问发出时历史为空，缓存键按空历史计算
+        String key = ResponseCache.key("会被截断的问题",
+                MediaLibrary.getInstance(context).getFingerprint(), new ChatHistory().contentHash());
+
+        Result truncated = new Result();
+        assistant.chatStream("会被截断的问题", truncated);
+        assertTrue(truncated.await());
+        assertNotNull(truncated.error);
+
+        Result empty = new Result();
+        assistant.chatStream("空响应的问题", empty);
+        assertTrue(empty.await());
+        assertNotNull(empty.error);
+
+        assertNull(assistant.getResponseCache().get(key));
+        for (ChatMessage message : assistant.getChatHistory().getMessages()) {
+            assertEquals("user", message.getRole());
+        }
+    }
+
+    // 只有完整且带【歌曲名】的回复进缓存；每次用新的助手，历史为空，缓存键相同
+    @Test
+    public void cachesOnlyCompleteRecommendations() throws Exception {
+        server.enqueue(completion("推荐【晴天】"));
+        server.enqueue(completion("推荐【夜曲】", "length"));
+        server.enqueue(completion("推荐【夜曲】", "length"));
+        server.enqueue(completion("没有推荐歌曲"));
+        server.enqueue(completion("没有推荐歌曲"));
+
+        assertEquals("推荐【晴天】", ask(newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET), "推荐一首"));
+        assertEquals("推荐【晴天】", ask(newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET), "推荐一首"));
+        assertEquals(1, server.getRequestCount());
+
+        ask(newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET), "被截断的推荐");
+        ask(newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET), "被截断的推荐");
+        assertEquals(3, server.getRequestCount());
+
+        ask(newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET), "随便聊聊");
+        ask(newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET), "随便聊聊");
+        assertEquals(5, server.getRequestCount());
+    }
+
+    // 进行中的相同问题合并为一个请求，两个回调都收到结果
+    @Test
+    public void identicalQuestionsAreCoalesced() throws Exception {
+        server.enqueue(completion("合并后的回复").setBodyDelay(500, TimeUnit.MILLISECONDS));
+        MusicAssistant assistant = newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET);
+        Result first = new Result();
+        Result second = new Result();
+        assistant.chat("同一个问题", first);
+        assistant.chat("同一个问题 ", second);
+        assertTrue(first.await());
+        assertTrue(second.await());
+        assertEquals("合并后的回复", first.response);
+        assertEquals("合并后的回复", second.response);
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, assistant.getCoalescedCount());
+    }
+
+    // 取消后不再回调，之后的新问题照常发送
+    @Test
+    public void cancelAllSuppressesCallbacks() throws Exception {
+        server.enqueue(completion("不应收到").setBodyDelay(1, TimeUnit.SECONDS));
+        server.enqueue(completion("取消之后的回复"));
+        MusicAssistant assistant = newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET);
+        Result canceled = new Result();
+        assistant.chat("会被取消的问题", canceled);
+        server.takeRequest(TIMEOUT_S, TimeUnit.SECONDS); // 请求已经发出
+        assistant.cancelAll();
+        assertFalse(canceled.done.await(2, TimeUnit.SECONDS));
+
+        Result next = new Result();
+        assistant.chat("下一个问题", next);
+        assertTrue(next.await());
+        assertEquals("取消之后的回复", next.response);
+    }
+
+    // 429 带 Retry-After 时等待后重试，最终成功
+    @Test
+    public void retriesAfterTooManyRequests() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(completion("重试后的回复"));
+        MusicAssistant assistant = newAssistant(ChatHistory.DEFAULT_CHAR_BUDGET);
+        Result result = new Result();
+        assistant.chat("需要重试的问题", result);
+        assertTrue(result.await());
+        assertEquals("重试后的回复", result.response);
+        assertEquals(3, server.getRequestCount());
+    }
+}
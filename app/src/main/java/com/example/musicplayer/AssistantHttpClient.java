@@ -0,0 +1,171 @@
+package com.example.musicplayer.ai;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// 所有 MusicAssistant 共用的 OkHttpClient：共享连接池和调度线程，并记录每个请求的各阶段耗时
+public class AssistantHttpClient {
+    private static final String TAG = "AssistantHttpClient";
+
+    private static OkHttpClient client;
+    private static volatile RequestTiming lastTiming;
+
+    private AssistantHttpClient() {
+    }
+
+    public static synchronized OkHttpClient get() {
+        if (client == null) {
+            client = new OkHttpClient.Builder()
+                    .connectTimeout(30, TimeUnit.SECONDS)
+                    .writeTimeout(30, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .connectionPool(new ConnectionPool(4, 5, TimeUnit.MINUTES))
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .eventListenerFactory(call -> new TimingEventListener())
+                    .build();
+        }
+        return client;
+    }
+
+    // 预先建立到接口服务器的连接（DNS + TCP + TLS），之后的请求直接复用
+    public static void warmUp(String url) {
+        Request request = new Request.Builder().url(url).head().build();
+        get().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Log.d(TAG, "Warm-up failed: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                // 状态码无关紧要，连接已经进入连接池
+                response.close();
+            }
+        });
+    }
+
+    // 最近一次完成的请求耗时，没有则为 null
+    public static RequestTiming getLastTiming() {
+        return lastTiming;
+    }
+
+    // 一次请求的各阶段耗时（毫秒），没有发生的阶段为 -1
+    public static class RequestTiming {
+        public final String url;
+        public final long dnsMs;
+        public final long connectMs;
+        public final long tlsMs;
+        public final long timeToFirstByteMs;
+        public final long totalMs;
+        public final boolean success;
+
+        RequestTiming(String url, long dnsMs, long connectMs, long tlsMs,
+                      long timeToFirstByteMs, long totalMs, boolean success) {
+            this.url = url;
+            this.dnsMs = dnsMs;
+            this.connectMs = connectMs;
+            this.tlsMs = tlsMs;
+            this.timeToFirstByteMs = timeToFirstByteMs;
+            this.totalMs = totalMs;
+            this.success = success;
+        }
+
+        @Override
+        public String toString() {
+            return "dns=" + dnsMs + "ms connect=" + connectMs + "ms tls=" + tlsMs
+                    + "ms ttfb=" + timeToFirstByteMs + "ms total=" + totalMs + "ms " + url;
+        }
+    }
+
+    private static class TimingEventListener extends EventListener {
+        private long callStart;
+        private long dnsStart = -1;
+        private long dnsMs = -1;
+        private long connectStart = -1;
+        private long connectMs = -1;
+        private long tlsStart = -1;
+        private long tlsMs = -1;
+        private long ttfbMs = -1;
+
+        private static long now() {
+            return SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void callStart(Call call) {
+            callStart = now();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = now();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            dnsMs = now() - dnsStart;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = now();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            tlsStart = now();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            tlsMs = now() - tlsStart;
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            connectMs = now() - connectStart;
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            if (ttfbMs < 0) {
+                ttfbMs = now() - callStart;
+            }
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            record(call, true);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            record(call, false);
+        }
+
+        private void record(Call call, boolean success) {
+            RequestTiming timing = new RequestTiming(call.request().url().toString(),
+                    dnsMs, connectMs, tlsMs, ttfbMs, now() - callStart, success);
+            lastTiming = timing;
+            Log.d(TAG, timing.toString());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.musicplayer;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// CatalogScanner.java
+// 后台增量扫描：先对比目录中记录的大小/修改时间，只解析新增或变化的文件；
+// 解析用固定大小的线程池（CPU 核数），结果在一个事务里写入 TrackCatalog
+public class CatalogScanner {
+    private static final String TAG = "CatalogScanner";
+    private static final String ASSET_SCHEME = "asset";
+    // 内容指纹只读文件头尾各 64KB 和文件长度，不读整个文件
+    private static final int HASH_SAMPLE_BYTES = 64 * 1024;
+
+    // 扫描的来源（URI scheme）：只删除这些来源中已不存在的条目，其他来源的记录保持不动
+    public static final Set<String> ASSET_SOURCES = Collections.singleton(ASSET_SCHEME);
+    public static final Set<String> ALL_SOURCES = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(ASSET_SCHEME, ContentResolver.SCHEME_CONTENT)));
+
+    // catalog：URI -> 元数据
+    public interface Callback {
+        void onCatalogUpdated(Map<String, TrackInfo> catalog);
+    }
+
+    private final Context context;
+    private final TrackCatalog catalog;
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final ExecutorService workers =
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 最近一次扫描的统计
+    private volatile int lastParsed = 0;
+    private volatile int lastSkipped = 0;
+    private volatile long lastScanTimeMs = -1;
+
+    public CatalogScanner(Context context, TrackCatalog catalog) {
+        this.context = context.getApplicationContext();
+        this.catalog = catalog;
+    }
+
+    // 扫描曲库，完成后在主线程回调完整的目录；sources 是 tracks 覆盖的来源
+    public void scan(List<Track> tracks, Set<String> sources, Callback callback) {
+        coordinator.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            Map<String, TrackInfo> known = catalog.loadAll();
+            long appStamp = getAppUpdateTime();
+
+            List<Future<TrackInfo>> futures = new ArrayList<>();
+            Set<String> present = new HashSet<>();
+            int skipped = 0;
+            for (Track track : tracks) {
+                String key = track.getUri().toString();
+                present.add(key);
+                TrackInfo old = known.get(key);
+                long modified = getModified(track, appStamp);
+                if (old != null && modified != 0 && old.getModified() == modified) {
+                    skipped++; // 没有变化，不打开文件
+                    continue;
+                }
+                futures.add(workers.submit(() -> parse(track, modified, old)));
+            }
+
+            List<TrackInfo> changed = new ArrayList<>(futures.size());
+            for (Future<TrackInfo> future : futures) {
+                try {
+                    TrackInfo info = future.get();
+                    if (info != null) {
+                        changed.add(info);
+                        known.put(info.getUri(), info);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    Log.w(TAG, "Failed to parse track", e.getCause());
+                }
+            }
+
+            Set<String> removed = new HashSet<>();
+            for (String key : known.keySet()) {
+                if (!present.contains(key) && sources.contains(Uri.parse(key).getScheme())) {
+                    removed.add(key);
+                }
+            }
+            known.keySet().removeAll(removed);
+            catalog.putAll(changed);
+            catalog.removeAll(removed);
+
+            lastParsed = changed.size();
+            lastSkipped = skipped;
+            lastScanTimeMs = SystemClock.elapsedRealtime() - start;
+            Log.d(TAG, "Catalog scan: " + lastScanTimeMs + "ms, parsed " + lastParsed
+                    + ", unchanged " + lastSkipped + ", removed " + removed.size());
+            mainHandler.post(() -> callback.onCatalogUpdated(known));
+        });
+    }
+
+    // 解析一首歌：大小和指纹都没变时只更新修改时间
+    @Nullable
+    private TrackInfo parse(Track track, long modified, @Nullable TrackInfo old) throws IOException {
+        try (AssetFileDescriptor afd = openFd(track.getUri())) {
+            if (afd == null) {
+                return null;
+            }
+            long size = afd.getLength();
+            String hash = contentHash(afd, size);
+            if (old != null && old.getSize() == size && hash.equals(old.getContentHash())) {
+                return old.withModified(modified);
+            }
+            try (MediaMetadataRetriever retriever = new MediaMetadataRetriever()) {
+                retriever.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), size);
+                return new TrackInfo(track.getUri().toString(), track.getFileName(),
+                        retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_TITLE),
+                        retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_ARTIST),
+                        retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_ALBUM),
+                        parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION)),
+                        (int) parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_BITRATE)),
+                        size, modified, hash);
+            }
+        }
+    }
+
+    @Nullable
+    private AssetFileDescriptor openFd(Uri uri) throws IOException {
+        if (ASSET_SCHEME.equals(uri.getScheme())) {
+            // asset:///music/xxx.mp3 -> music/xxx.mp3
+            return context.getAssets().openFd(uri.getPath().substring(1));
+        }
+        return context.getContentResolver().openAssetFileDescriptor(uri, "r");
+    }
+
+    // 修改时间：assets 只会随安装包更新而变化，用安装包的更新时间；
+    // 媒体库中的文件从 MediaStore 读取，不需要打开文件；取不到时为 0（总是重新解析）
+    private long getModified(Track track, long appStamp) {
+        if (track.getModified() > 0) {
+            return track.getModified(); // 查询曲库时已经带回
+        }
+        Uri uri = track.getUri();
+        if (ASSET_SCHEME.equals(uri.getScheme())) {
+            return appStamp;
+        }
+        if (ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
+            String[] projection = {MediaStore.MediaColumns.DATE_MODIFIED};
+            try (Cursor cursor = context.getContentResolver().query(uri, projection, null, null, null)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    return cursor.getLong(0);
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Failed to query modified time for " + uri, e);
+            }
+        }
+        return 0;
+    }
+
+    private long getAppUpdateTime() {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private static String contentHash(AssetFileDescriptor afd, long size) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[HASH_SAMPLE_BYTES];
+        try (InputStream in = afd.createInputStream()) {
+            int head = readFully(in, buffer, (int) Math.min(size, HASH_SAMPLE_BYTES));
+            digest.update(buffer, 0, head);
+            long tailStart = Math.max(head, size - HASH_SAMPLE_BYTES);
+            long toSkip = tailStart - head;
+            while (toSkip > 0) {
+                long skipped = in.skip(toSkip);
+                if (skipped <= 0) {
+                    break;
+                }
+                toSkip -= skipped;
+            }
+            int tail = readFully(in, buffer, (int) (size - tailStart));
+            digest.update(buffer, 0, tail);
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            digest.update((byte) (size >>> shift));
+        }
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            sb.append(String.format(Locale.ROOT, "%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int n = in.read(buffer, total, length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private static long parseLong(@Nullable String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public int getLastParsedCount() {
+        return lastParsed;
+    }
+
+    public int getLastSkippedCount() {
+        return lastSkipped;
+    }
+
+    // 最近一次扫描耗时（毫秒），没有记录时为 -1
+    public long getLastScanTime() {
+        return lastScanTimeMs;
+    }
+
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.musicplayer.ai;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.musicplayer.R;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 聊天记录列表：每条消息一行，更新某条消息时只重新绑定这一行
+public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ViewHolder> {
+    private final List<ChatMessage> messages = new ArrayList<>();
+
+    // 添加一条消息，返回它的位置
+    public int addMessage(ChatMessage message) {
+        messages.add(message);
+        int position = messages.size() - 1;
+        notifyItemInserted(position);
+        return position;
+    }
+
+    // 原地替换某条消息（"思考中..." 占位、流式输出的部分文本）
+    public void updateMessage(int position, ChatMessage message) {
+        if (position < 0 || position >= messages.size()) {
+            return;
+        }
+        messages.set(position, message);
+        notifyItemChanged(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return messages.size();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_chat_message, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        ChatMessage message = messages.get(position);
+        String speaker = "user".equals(message.getRole()) ? "你: " : "音乐管家: ";
+        holder.textView.setText(speaker + message.getContent());
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView textView;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            textView = itemView.findViewById(R.id.tv_message);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.musicplayer.ai;
+
+import org.json.JSONException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// 有字符预算的聊天历史：超出预算时从最早的一轮对话开始丢弃；所有方法线程安全
+public class ChatHistory {
+    public static final int DEFAULT_CHAR_BUDGET = 8000;
+
+    private final ArrayDeque<ChatMessage> messages = new ArrayDeque<>();
+    private final int charBudget;
+    private int totalChars = 0;
+    // 已序列化的历史消息，以逗号分隔；没有淘汰时只追加
+    private final StringBuilder serialized = new StringBuilder();
+    private boolean dirty = false;
+    private long evictedMessages = 0;
+
+    public ChatHistory() {
+        this(DEFAULT_CHAR_BUDGET);
+    }
+
+    public ChatHistory(int charBudget) {
+        this.charBudget = charBudget;
+    }
+
+    public synchronized void add(ChatMessage message) throws JSONException {
+        String json = message.toJson();
+        messages.addLast(message);
+        totalChars += json.length();
+        if (!dirty) {
+            if (serialized.length() > 0) {
+                serialized.append(',');
+            }
+            serialized.append(json);
+        }
+        evictOverBudget();
+    }
+
+    // 按整轮（用户消息及其后的回复）淘汰，超出预算时也保留最后一轮；历史总是从用户消息开始
+    private void evictOverBudget() throws JSONException {
+        while (totalChars > charBudget && hasEarlierTurn()) {
+            removeFirst();
+            while (!isUser(messages.peekFirst())) {
+                removeFirst();
+            }
+        }
+        // 开头剩下的孤立回复不能单独发送
+        while (!messages.isEmpty() && !isUser(messages.peekFirst())) {
+            removeFirst();
+        }
+    }
+
+    // 最后一轮之前是否还有别的轮次（第一条之后还有用户消息）
+    private boolean hasEarlierTurn() {
+        Iterator<ChatMessage> it = messages.iterator();
+        if (it.hasNext()) {
+            it.next();
+        }
+        while (it.hasNext()) {
+            if (isUser(it.next())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isUser(ChatMessage message) {
+        return "user".equals(message.getRole());
+    }
+
+    private void removeFirst() throws JSONException {
+        ChatMessage removed = messages.removeFirst();
+        totalChars -= removed.toJson().length();
+        evictedMessages++;
+        dirty = true;
+    }
+
+    // 历史消息的 JSON 片段（不含方括号）
+    public synchronized String getSerialized() throws JSONException {
+        if (dirty) {
+            serialized.setLength(0);
+            Iterator<ChatMessage> it = messages.iterator();
+            while (it.hasNext()) {
+                serialized.append(it.next().toJson());
+                if (it.hasNext()) {
+                    serialized.append(',');
+                }
+            }
+            dirty = false;
+        }
+        return serialized.toString();
+    }
+
+    // 当前历史内容的哈希，用于缓存键
+    public synchronized int contentHash() throws JSONException {
+        return getSerialized().hashCode();
+    }
+
+    public synchronized List<ChatMessage> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    public synchronized int getTotalChars() {
+        return totalChars;
+    }
+
+    public int getCharBudget() {
+        return charBudget;
+    }
+
+    public synchronized long getEvictedMessages() {
+        return evictedMessages;
+    }
+
+    public synchronized void clear() {
+        messages.clear();
+        serialized.setLength(0);
+        totalChars = 0;
+        dirty = false;
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.musicplayer.ai;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 public class ChatMessage {
     private String role;
     private String content;
+    private String json; // 序列化结果缓存
 
     public ChatMessage(String role, String content) {
         this.role = role;
@@ -16,4 +20,15 @@ public class ChatMessage {
     public String getContent() {
         return content;
     }
-}
\ No newline at end of file
+
+    // 序列化为 {"role":...,"content":...}，只计算一次
+    public String toJson() throws JSONException {
+        if (json == null) {
+            JSONObject messageObj = new JSONObject();
+            messageObj.put("role", role);
+            messageObj.put("content", content);
+            json = messageObj.toString();
+        }
+        return json;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.musicplayer.ai;
+
+import android.os.SystemClock;
+
+// 熔断器：连续失败达到阈值后断开，一段时间内直接拒绝请求；之后放行一个试探请求
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_DURATION_MS = 30_000;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public interface Clock {
+        long now();
+    }
+
+    private final int failureThreshold;
+    private final long openDurationMs;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    // 统计
+    private long shortCircuitCount = 0;
+    private long openCount = 0;
+
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION_MS, SystemClock::elapsedRealtime);
+    }
+
+    // clock 可以替换为手动推进的时钟，方便验证状态变化
+    public CircuitBreaker(int failureThreshold, long openDurationMs, Clock clock) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+        this.clock = clock;
+    }
+
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && clock.now() - openedAt >= openDurationMs) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        shortCircuitCount++;
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.now();
+            openCount++;
+        }
+    }
+
+    // 请求被取消（例如对话框关闭）：没有结果，不计成功也不计失败，但要放开试探名额，
+    // 否则 HALF_OPEN 状态会一直拒绝后续请求
+    public synchronized void recordCancelled() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getShortCircuitCount() {
+        return shortCircuitCount;
+    }
+
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.musicplayer.ai;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+// 流式解析 chat completions 的返回：只读取 choices[0].message/delta.content 和 finish_reason，其余字段直接跳过
+public class CompletionParser {
+
+    // choices[0] 中用到的字段
+    public static class Choice {
+        public final String content;
+        public final String finishReason; // 没有该字段时为 null
+
+        Choice(String content, String finishReason) {
+            this.content = content;
+            this.finishReason = finishReason;
+        }
+
+        // 正常结束（不是因为长度上限或内容过滤被截断）
+        public boolean isComplete() {
+            return finishReason == null || "stop".equals(finishReason);
+        }
+    }
+
+    private CompletionParser() {
+    }
+
+    // 普通响应：choices[0].message.content 和 finish_reason
+    public static Choice readMessage(InputStream in) throws IOException, JSONException {
+        Choice choice = readChoice(new InputStreamReader(in, StandardCharsets.UTF_8), "message");
+        if (choice == null || choice.content == null) {
+            throw new JSONException("No value for choices[0].message.content");
+        }
+        return choice;
+    }
+
+    // 普通响应：只要 choices[0].message.content
+    public static String readMessageContent(InputStream in) throws IOException, JSONException {
+        return readMessage(in).content;
+    }
+
+    // SSE 数据块：choices[0].delta.content，没有内容时返回空字符串
+    public static String readDeltaContent(String data) throws JSONException {
+        try {
+            Choice choice = readChoice(new StringReader(data), "delta");
+            return choice != null && choice.content != null ? choice.content : "";
+        } catch (IOException e) {
+            throw new JSONException(e.getMessage());
+        }
+    }
+
+    private static Choice readChoice(Reader in, String field) throws IOException, JSONException {
+        JsonReader reader = new JsonReader(in);
+        try {
+            Choice choice = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("choices".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    choice = readFirstChoice(reader, field);
+                    // 已经拿到需要的内容，剩下的部分不再解析
+                    break;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return choice;
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new JSONException(e.getMessage());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static Choice readFirstChoice(JsonReader reader, String field) throws IOException {
+        String content = null;
+        String finishReason = null;
+        reader.beginArray();
+        if (!reader.hasNext()) {
+            return null;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (field.equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                content = readContent(reader);
+            } else if ("finish_reason".equals(name) && reader.peek() == JsonToken.STRING) {
+                finishReason = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Choice(content, finishReason);
+    }
+
+    private static String readContent(JsonReader reader) throws IOException {
+        String content = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("content".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                content = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return content;
+    }
+}
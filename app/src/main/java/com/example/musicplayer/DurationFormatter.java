@@ -0,0 +1,73 @@
+package com.example.musicplayer;
+
+// DurationFormatter.java
+// 把毫秒数格式化为 m:ss / h:mm:ss，结果写入复用的 char[]，不产生新对象
+public class DurationFormatter {
+    private final char[] buffer = new char[20];
+    private int length = 0;
+    private long lastSeconds = -1;
+
+    // 格式化时长；如果显示的秒数没有变化则返回 false，调用方可以跳过 setText
+    public boolean update(long durationMs) {
+        long seconds = durationMs > 0 ? durationMs / 1000 : 0;
+        if (seconds == lastSeconds) {
+            return false;
+        }
+        lastSeconds = seconds;
+        length = write(seconds, buffer);
+        return true;
+    }
+
+    // 强制下一次 update 重新格式化
+    public void reset() {
+        lastSeconds = -1;
+    }
+
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // 追加到 StringBuilder，复用内部 buffer
+    public void appendTo(StringBuilder sb) {
+        sb.append(buffer, 0, length);
+    }
+
+    private static int write(long totalSeconds, char[] out) {
+        long hours = totalSeconds / 3600;
+        int minutes = (int) (totalSeconds / 60 % 60);
+        int seconds = (int) (totalSeconds % 60);
+
+        int pos = 0;
+        if (hours > 0) {
+            pos = writeLong(hours, out, pos);
+            out[pos++] = ':';
+            out[pos++] = (char) ('0' + minutes / 10);
+        } else {
+            out[pos++] = (char) ('0' + minutes / 10); // 不足一小时保持原来的 "mm:ss" 样式
+        }
+        out[pos++] = (char) ('0' + minutes % 10);
+        out[pos++] = ':';
+        out[pos++] = (char) ('0' + seconds / 10);
+        out[pos++] = (char) ('0' + seconds % 10);
+        return pos;
+    }
+
+    private static int writeLong(long value, char[] out, int pos) {
+        int start = pos;
+        do {
+            out[pos++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        // 反转数字
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            char c = out[i];
+            out[i] = out[j];
+            out[j] = c;
+        }
+        return pos;
+    }
+}
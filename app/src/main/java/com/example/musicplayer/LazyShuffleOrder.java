@@ -0,0 +1,112 @@
+package com.example.musicplayer;
+
+import com.google.android.exoplayer2.C;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// LazyShuffleOrder.java
+// 按需生成的随机播放顺序：Fisher–Yates 洗牌每次只确定下一个位置，
+// 只记录与原顺序不同的位置，开启随机播放时不需要为整个队列分配数组
+public class LazyShuffleOrder {
+    private final int length;
+    private final Random random;
+    private final Map<Integer, Integer> indexAt = new HashMap<>();    // 随机位置 -> 播放列表下标
+    private final Map<Integer, Integer> positionOf = new HashMap<>(); // 播放列表下标 -> 随机位置
+    private int generated = 0; // [0, generated) 的位置已经确定
+
+    public LazyShuffleOrder(int length, long seed) {
+        this.length = length;
+        this.random = new Random(seed);
+    }
+
+    private int indexAt(int position) {
+        Integer index = indexAt.get(position);
+        return index != null ? index : position;
+    }
+
+    private int positionOf(int index) {
+        Integer position = positionOf.get(index);
+        return position != null ? position : index;
+    }
+
+    private void swap(int p, int q) {
+        if (p == q) {
+            return;
+        }
+        int a = indexAt(p);
+        int b = indexAt(q);
+        put(p, b);
+        put(q, a);
+    }
+
+    private void put(int position, int index) {
+        if (position == index) {
+            indexAt.remove(position);
+            positionOf.remove(index);
+        } else {
+            indexAt.put(position, index);
+            positionOf.put(index, position);
+        }
+    }
+
+    // 确定第 position 个位置（洗牌的一步）
+    private void ensureGenerated(int position) {
+        while (generated <= position) {
+            swap(generated, generated + random.nextInt(length - generated));
+            generated++;
+        }
+    }
+
+    // 查询一首还没有排到的歌曲时，把它作为下一步洗牌的结果固定下来
+    private int fixedPositionOf(int index) {
+        int position = positionOf(index);
+        if (position >= generated) {
+            swap(generated, position);
+            position = generated;
+            generated++;
+        }
+        return position;
+    }
+
+    // 已经确定的位置数，用于检查开启随机播放后只生成了窗口附近的一段
+    synchronized int getGeneratedCount() {
+        return generated;
+    }
+
+    public synchronized int getLength() {
+        return length;
+    }
+
+    public synchronized int getNextIndex(int index) {
+        int position = fixedPositionOf(index);
+        if (position + 1 >= length) {
+            return C.INDEX_UNSET;
+        }
+        ensureGenerated(position + 1);
+        return indexAt(position + 1);
+    }
+
+    public synchronized int getPreviousIndex(int index) {
+        int position = fixedPositionOf(index);
+        return position > 0 ? indexAt(position - 1) : C.INDEX_UNSET;
+    }
+
+    // 会生成完整顺序，播放队列不调用
+    public synchronized int getLastIndex() {
+        if (length == 0) {
+            return C.INDEX_UNSET;
+        }
+        ensureGenerated(length - 1);
+        return indexAt(length - 1);
+    }
+
+    public synchronized int getFirstIndex() {
+        if (length == 0) {
+            return C.INDEX_UNSET;
+        }
+        ensureGenerated(0);
+        return indexAt(0);
+    }
+}
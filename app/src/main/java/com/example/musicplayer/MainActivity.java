@@ -1,38 +1,45 @@
 package com.example.musicplayer;
 
+import android.Manifest;
 import android.annotation.SuppressLint;
 import android.content.ComponentName;
 import android.content.Intent;
 import android.content.ServiceConnection;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.IBinder;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.WindowManager;
-import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
 import android.widget.ImageButton;
-import android.widget.ListView;
 import android.widget.SeekBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBar;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Player;
 
-import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
+    private static final int PERMISSION_CODE = 2;
     ActionBar actionBar;
     TextView tv_songName;
     TextView tv_seekBarHint;
@@ -43,41 +50,84 @@ public class MainActivity extends AppCompatActivity {
     ImageButton btn_next;
     ImageButton btn_playList;
     ImageButton btn_playWay;
-    ListView listView;
-    ArrayAdapter<String> adpter;
-    List<String> music_list = new ArrayList<>();
+    RecyclerView playlistView;
+    TextView tv_section;
+    PlaylistAdapter playlistAdapter;
     ConstraintLayout layout;
     MusicService musicService;
     private boolean isServiceBound = false;
-    private Timer timer; //定时器
+    private boolean isVisible = false;
+    private long bindStartTimeMs; // 绑定耗时统计：重新进入时 Service 已存在，应在几毫秒内连上
+    private final DurationFormatter positionFormatter = new DurationFormatter();
+    private final DurationFormatter durationFormatter = new DurationFormatter();
+    // 进度刷新器，整个 Activity 只有一个
+    private final ProgressTicker progressTicker = new ProgressTicker(new ProgressTicker.OnTickListener() {
+        @Override
+        public void onTick() {
+            updateProgress();
+        }
+    });
+
+    // 更新播放进度（歌曲总时长由播放状态推送）
+    private void updateProgress() {
+        if (musicService == null) {
+            return;
+        }
+        long position = musicService.getContentPosition();
+
+        // 更新当前进度文本
+        setTimeText(tv_seekBarHint, positionFormatter, position);
 
-    // 更新播放进度和歌曲总时长
-    private class ProgressUpdate extends TimerTask {
+        // 更新进度条进度
+        seekBar.setProgress((int) position);
+    }
+
+    // 播放状态变化时由 MusicService 推送，不再轮询
+    private final MusicService.PlaybackObserver playbackObserver = new MusicService.PlaybackObserver() {
         @Override
-        public void run() {
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    long position = musicService.getContentPosition();
-                    long duration = musicService.getDuration();
-
-                    // 更新当前进度文本
-                    tv_seekBarHint.setText(format(position));
-                    // 更新歌曲总时长文本
-                    tv_duration.setText(format(duration));
-
-                    // 更新进度条进度
-                    seekBar.setMax((int) duration);
-                    seekBar.setProgress((int) position);
-                }
-            });
+        public void onPlaybackChanged(PlaybackSnapshot snapshot) {
+            if (snapshot.getUri() != null) {
+                updateSongName(snapshot.getUri(), snapshot.getFileName());
+            }
+            btn_play.setImageResource(snapshot.getPlayWhenReady() ? R.drawable.pause : R.drawable.play);
+            if (snapshot.isShuffleEnabled()) {
+                btn_playWay.setImageResource(R.drawable.shuffle);
+            } else {
+                btn_playWay.setImageResource(snapshot.getRepeatMode() == Player.REPEAT_MODE_ONE
+                        ? R.drawable.single_cycle : R.drawable.play_in_order);
+            }
+
+            // 设备曲库变化后列表引用才会变，其余时候 submitList 直接返回
+            if (musicService != null) {
+                playlistAdapter.submitList(musicService.getTracks());
+            }
+
+            // 更新歌曲总时长
+            long duration = snapshot.getDuration() == C.TIME_UNSET ? 0 : snapshot.getDuration();
+            setTimeText(tv_duration, durationFormatter, duration);
+            seekBar.setMax((int) duration);
+
+            if (snapshot.isPlaying()) {
+                startProgressUpdates();
+            } else {
+                progressTicker.stop();
+                updateProgress();
+            }
+        }
+    };
+
+    // 开始刷新进度（Activity 不可见时不刷新）
+    private void startProgressUpdates() {
+        if (isVisible) {
+            progressTicker.start();
         }
     }
 
-    public String format(long position) {
-        SimpleDateFormat sdf = new SimpleDateFormat("mm:ss"); // "分:秒"格式
-        String timeStr = sdf.format(position); //会自动将时长(毫秒数)转换为分秒格式
-        return timeStr;
+    // 显示的秒数变化时才 setText，且不创建新字符串
+    private void setTimeText(TextView textView, DurationFormatter formatter, long time) {
+        if (formatter.update(time)) {
+            textView.setText(formatter.getBuffer(), 0, formatter.length());
+        }
     }
 
 
@@ -88,14 +138,62 @@ public class MainActivity extends AppCompatActivity {
             MusicService.LocalBinder binder = (MusicService.LocalBinder) service;
             musicService = binder.getService();
             isServiceBound = true;
+            Log.d(TAG, "Service attach: " + (SystemClock.elapsedRealtime() - bindStartTimeMs)
+                    + "ms, ready=" + musicService.isReady());
+            musicService.addPlaybackObserver(playbackObserver);
+            // 曲库在 Service 后台扫描，就绪后再填充列表
+            musicService.whenReady(readyListener);
         }
 
         @Override
         public void onServiceDisconnected(ComponentName name) {
+            progressTicker.stop();
+            musicService.removePlaybackObserver(playbackObserver);
+            musicService.removeReadyListener(readyListener);
             musicService = null;
             isServiceBound = false;
         }
     };
+
+    private final MusicService.OnReadyListener readyListener = new MusicService.OnReadyListener() {
+        @Override
+        public void onReady(MusicService service) {
+            playlistAdapter.submitList(service.getTracks());
+            if (hasAudioPermission()) {
+                service.enableDeviceLibrary();
+            }
+        }
+    };
+
+    // 读取设备上的音乐需要的权限（Android 13 起为 READ_MEDIA_AUDIO）
+    private static String audioPermission() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                ? Manifest.permission.READ_MEDIA_AUDIO : Manifest.permission.READ_EXTERNAL_STORAGE;
+    }
+
+    private boolean hasAudioPermission() {
+        return hasPermission(audioPermission());
+    }
+
+    private boolean hasPermission(String permission) {
+        return ContextCompat.checkSelfPermission(this, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
+                                           @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode != PERMISSION_CODE) {
+            return;
+        }
+        // 通知权限被拒绝时照常播放，只是不显示播放通知
+        for (int i = 0; i < permissions.length && i < grantResults.length; i++) {
+            if (permissions[i].equals(audioPermission())
+                    && grantResults[i] == PackageManager.PERMISSION_GRANTED && musicService != null) {
+                musicService.enableDeviceLibrary();
+            }
+        }
+    }
     View.OnClickListener listener1 = new View.OnClickListener() {
         @Override
         public void onClick(View v) {
@@ -120,107 +218,83 @@ public class MainActivity extends AppCompatActivity {
         }
     };
 
-    // ListView 显示音乐列表 start
+    // 播放列表 start
     public void showListView() {
-        music_list = getMusic(); // 获取音乐列表
-        adpter = new ArrayAdapter<String>( // 创建适配器
-                MainActivity.this,
-                android.R.layout.simple_list_item_single_choice,
-                music_list
-        );
-        listView.setAdapter(adpter); // 设置适配器
-        listView.setChoiceMode(ListView.CHOICE_MODE_SINGLE); // 设置选择模式
-
-        listView.setOnItemClickListener(listener2); // 设置监听器
-        listView.setVisibility(View.VISIBLE); // 设置可见
+        // 曲库未变化时列表引用相同，不会触发任何差异计算或重新布局
+        playlistAdapter.submitList(getMusic());
+        playlistView.setVisibility(View.VISIBLE); // 设置可见
     }
 
-    List<String> getMusic() {
-        List<String> mList = new ArrayList<>();
-        try {
-            String[] fNames = getAssets().list("music");
-            for (String fn : fNames) {
-                mList.add(fn);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    // 曲库未扫描完时返回空列表，不在主线程等待
+    List<Track> getMusic() {
+        if (musicService == null) {
+            return Collections.emptyList();
         }
-        mList.add("返回");
-        return mList;
+        return musicService.getTracks();
     }
 
-    AdapterView.OnItemClickListener listener2 = new AdapterView.OnItemClickListener() {
+    PlaylistAdapter.OnItemClickListener listener2 = new PlaylistAdapter.OnItemClickListener() {
         @Override
-        public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-            ListView lv = (ListView) parent;
-            lv.setSelector(R.color.purple_200); //设置高亮背景色 purple_200颜色值见原来项目
-            String musicName = parent.getItemAtPosition(position).toString(); //获得选中项图片名称，需要toString
-
-            if (musicName.equals("返回")) {
-                // 获取ListView的布局参数
-                listView.setVisibility(View.GONE);
-            } else {
-                playMusic(musicName);
-            }
+        public void onTrackClick(int position, Track track) {
+            playTrack(position);
+        }
+
+        @Override
+        public void onBackClick() {
+            playlistView.setVisibility(View.GONE);
+            tv_section.setVisibility(View.GONE);
         }
     };
 
     public void playMusic(String musicName) {
-        updateSongName(musicName);
         if (isServiceBound && musicService != null) {
-            timer = new Timer();
-            timer.schedule(new ProgressUpdate(), 0, 1000);
             musicService.playMusic(musicName);
-            btn_play.setImageResource(R.drawable.pause);
         }
     }
-    // ListView 显示音乐列表 end
 
+    // 按下标播放，避免在 Service 中按名称查找
+    public void playTrack(int index) {
+        if (isServiceBound && musicService != null) {
+            musicService.playTrack(index);
+        }
+    }
+    // 播放列表 end
+
+    // 界面的歌曲名、按钮图标和进度刷新都由播放状态推送更新
     public void playOrPauseMusic() {
+        if (!isServiceBound || musicService == null) {
+            return;
+        }
         if (musicService.isPlaying()) {
-            btn_play.setImageResource(R.drawable.play);
             musicService.pause();
         } else {
-            // 创建一个 Timer 对象，用于定时更新进度条和文本
-            timer = new Timer();
-            // 将 ProgressUpdate 任务调度到 Timer 中，每隔一定时间执行一次
-            timer.schedule(new ProgressUpdate(), 0, 1000);
-            btn_play.setImageResource(R.drawable.pause);
-
             musicService.play();
-
-            String songName = musicService.getCurrentSongName();
-            updateSongName(songName);
         }
     }
 
     // 播放上一首音乐
     public void playPreviousTrack() {
         if (isServiceBound && musicService != null) {
-            timer = new Timer();
-            timer.schedule(new ProgressUpdate(), 0, 1000);
-            btn_play.setImageResource(R.drawable.pause);
             musicService.playPreviousTrack();
-            String songName = musicService.getCurrentSongName();
-            updateSongName(songName);
         }
     }
 
     // 播放下一首音乐
     public void playNextTrack() {
         if (isServiceBound && musicService != null) {
-            timer = new Timer();
-            timer.schedule(new ProgressUpdate(), 0, 1000);
-            btn_play.setImageResource(R.drawable.pause);
             musicService.playNextTrack();
-            String songName = musicService.getCurrentSongName();
-            updateSongName(songName);
         }
     }
 
-    public void updateSongName(String songName) {
-        // 去掉文件名后缀
-        songName = songName.substring(0, songName.lastIndexOf("."));
+    public void updateSongName(Uri uri, String songName) {
+        // 目录中有标签时显示标题和歌手，否则去掉文件名后缀
+        TrackInfo info = musicService != null ? musicService.getTrackInfo(uri) : null;
+        if (info != null && info.getTitle() != null && !info.getTitle().isEmpty()) {
+            tv_songName.setText(info.getArtist() != null && !info.getArtist().isEmpty()
+                    ? info.getTitle() + " - " + info.getArtist() : info.getTitle());
+            return;
+        }
+        songName = MediaLibrary.stripExtension(songName);
         tv_songName.setText(songName);
     }
 
@@ -228,12 +302,14 @@ public class MainActivity extends AppCompatActivity {
     private void changePlayMode() {
         if (musicService != null) {
             int currentMode = musicService.getPlayMode();
-            if (currentMode == Player.REPEAT_MODE_ALL) {
+            // 顺序播放 -> 单曲循环 -> 随机播放 -> 顺序播放，按钮图标随播放状态推送更新
+            if (musicService.isShuffleEnabled()) {
+                musicService.setShuffleEnabled(false); // 切换到顺序播放
+            } else if (currentMode == Player.REPEAT_MODE_ALL) {
                 musicService.setPlayMode(Player.REPEAT_MODE_ONE); // 切换到单曲循环
-                btn_playWay.setImageResource(R.drawable.single_cycle); // 更新按钮图标
             } else if (currentMode == Player.REPEAT_MODE_ONE) {
-                musicService.setPlayMode(Player.REPEAT_MODE_ALL); // 切换到顺序播放
-                btn_playWay.setImageResource(R.drawable.play_in_order); // 更新按钮图标
+                musicService.setPlayMode(Player.REPEAT_MODE_ALL);
+                musicService.setShuffleEnabled(true); // 切换到随机播放
             }
         }
     }
@@ -256,23 +332,46 @@ public class MainActivity extends AppCompatActivity {
         btn_playList.setOnClickListener(listener1);
         btn_playWay.setOnClickListener(listener1);
 
-        listView = (ListView) findViewById(R.id.lv_music);
+        playlistView = (RecyclerView) findViewById(R.id.rv_music);
+        tv_section = (TextView) findViewById(R.id.tv_section);
+        playlistAdapter = new PlaylistAdapter(listener2);
+        playlistView.setLayoutManager(new LinearLayoutManager(this));
+        playlistView.setHasFixedSize(true);
+        playlistView.setAdapter(playlistAdapter);
+        // 滚动时显示当前分段字母，停止滚动后隐藏
+        final Runnable hideSection = () -> tv_section.setVisibility(View.GONE);
+        playlistView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager lm = (LinearLayoutManager) recyclerView.getLayoutManager();
+                int first = lm.findFirstVisibleItemPosition();
+                Object[] sections = playlistAdapter.getSections();
+                if (dy == 0 || first == RecyclerView.NO_POSITION || sections.length == 0) {
+                    return;
+                }
+                tv_section.setText(sections[playlistAdapter.getSectionForPosition(first)].toString());
+                tv_section.setVisibility(View.VISIBLE);
+                tv_section.removeCallbacks(hideSection);
+                tv_section.postDelayed(hideSection, 800);
+            }
+        });
 
         layout = (ConstraintLayout) findViewById(R.id.constrainLayout);
 
         layout.setOnTouchListener(new View.OnTouchListener() {
             public boolean onTouch(View v, MotionEvent event) {
-                // 获取 ListView 的位置信息
+                // 获取播放列表的位置信息
                 int[] listViewLocation = new int[2];
-                listView.getLocationOnScreen(listViewLocation);
+                playlistView.getLocationOnScreen(listViewLocation);
 
-                // 判断触摸事件的坐标是否在 ListView 区域内
+                // 判断触摸事件的坐标是否在播放列表区域内
                 if (event.getRawX() < listViewLocation[0] ||
-                        event.getRawX() > listViewLocation[0] + listView.getWidth() ||
+                        event.getRawX() > listViewLocation[0] + playlistView.getWidth() ||
                         event.getRawY() < listViewLocation[1] ||
-                        event.getRawY() > listViewLocation[1] + listView.getHeight()) {
-                    // 如果触摸事件不在 ListView 区域内，则隐藏 ListView
-                    listView.setVisibility(View.GONE);
+                        event.getRawY() > listViewLocation[1] + playlistView.getHeight()) {
+                    // 如果触摸事件不在播放列表区域内，则隐藏播放列表
+                    playlistView.setVisibility(View.GONE);
+                    tv_section.setVisibility(View.GONE);
                     return true; // 表示触摸事件已经被处理
                 }
                 return false; // 表示触摸事件未被处理
@@ -288,9 +387,8 @@ public class MainActivity extends AppCompatActivity {
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                 // SeekBar 的进度发生改变时触发的操作
                 if (fromUser) {
-                    timer = new Timer();
-                    timer.schedule(new ProgressUpdate(), 0, 1000);
-                    tv_seekBarHint.setText(format(progress));
+                    startProgressUpdates();
+                    setTimeText(tv_seekBarHint, positionFormatter, progress);
                     musicService.seekTo(progress);
                 }
             }
@@ -304,8 +402,6 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onStopTrackingTouch(SeekBar seekBar) {
                 // 用户停止滑动 SeekBar 时触发的操作
-                btn_play.setImageResource(R.drawable.pause);
-                updateSongName(musicService.getCurrentSongName());
                 musicService.play();
             }
         });
@@ -331,9 +427,26 @@ public class MainActivity extends AppCompatActivity {
         initView();
 
 
+        // 先启动再绑定：Activity 销毁解绑后 Service 和播放器继续存在，重新进入时直接复用
         Intent intent = new Intent(MainActivity.this, MusicService.class);
+        startService(intent);
+        bindStartTimeMs = SystemClock.elapsedRealtime();
         bindService(intent, serviceConnection, BIND_AUTO_CREATE);
 
+        // 申请读取设备音乐的权限，授予后曲库加入设备上的歌曲；
+        // Android 13 起播放通知也要运行时授权，一起申请
+        List<String> missing = new ArrayList<>();
+        if (!hasAudioPermission()) {
+            missing.add(audioPermission());
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && !hasPermission(Manifest.permission.POST_NOTIFICATIONS)) {
+            missing.add(Manifest.permission.POST_NOTIFICATIONS);
+        }
+        if (!missing.isEmpty()) {
+            ActivityCompat.requestPermissions(this, missing.toArray(new String[0]), PERMISSION_CODE);
+        }
+
 
     }
 
@@ -352,11 +465,39 @@ public class MainActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        isVisible = true;
+        if (musicService != null && musicService.isPlaying()) {
+            progressTicker.start();
+        } else {
+            updateProgress();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // 退到后台时停止刷新
+        isVisible = false;
+        progressTicker.stop();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (musicService != null) {
+            musicService.removePlaybackObserver(playbackObserver);
+            musicService.removeReadyListener(readyListener);
+        }
+        // 只解绑，不释放播放器；退出应用且没有在播放时才停止 Service
+        if (isFinishing() && (musicService == null || !musicService.isPlaying())) {
+            stopService(new Intent(this, MusicService.class));
+        }
         unbindService(serviceConnection);
-        musicService.onDestroy();
+        musicService = null;
+        isServiceBound = false;
     }
 
     // 添加听歌识曲功能跳转
@@ -0,0 +1,207 @@
+package com.example.musicplayer;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceException;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// MappedAssetDataSource.java
+// 未压缩的 asset（build.gradle 中 noCompress）直接从安装包内映射到内存读取：
+// 不经过 AssetManager.open() 的流和中间缓冲，seek 时重新 open 只是移动读指针；
+// 其他 URI 和被压缩的 asset 交给 DefaultDataSource。
+// 和 DefaultDataSource 一样直接实现 DataSource、自己维护监听器，监听器同时转给 fallback
+public class MappedAssetDataSource implements DataSource {
+    private static final String ASSET_SCHEME = "asset";
+    private static final int MAX_MAPPED_FILES = 8; // 最近用过的几首保持映射，seek 和切回时不必重新映射
+
+    // 最近映射过的 asset（LRU）。归 Factory 所有、由它创建的数据源共用，
+    // 播放器和 Factory 释放后随之回收，映射在 GC 时解除
+    static final class MappedFiles {
+        private final LinkedHashMap<String, MappedByteBuffer> files =
+                new LinkedHashMap<String, MappedByteBuffer>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, MappedByteBuffer> eldest) {
+                        return size() > MAX_MAPPED_FILES;
+                    }
+                };
+
+        @Nullable
+        synchronized MappedByteBuffer get(String path) {
+            return files.get(path);
+        }
+
+        synchronized void put(String path, MappedByteBuffer mapped) {
+            files.put(path, mapped);
+        }
+    }
+
+    public static class Factory implements DataSource.Factory {
+        private final Context context;
+        private final DataSource.Factory fallbackFactory;
+        private final MappedFiles mappedFiles = new MappedFiles();
+
+        public Factory(Context context) {
+            this.context = context.getApplicationContext();
+            this.fallbackFactory = new DefaultDataSource.Factory(this.context);
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            return new MappedAssetDataSource(context, fallbackFactory.createDataSource(), mappedFiles);
+        }
+    }
+
+    private final Context context;
+    private final DataSource fallback;
+    private final MappedFiles mappedFiles;
+    private final List<TransferListener> transferListeners = new ArrayList<>();
+    @Nullable
+    private DataSpec dataSpec;
+    @Nullable
+    private Uri uri;
+    @Nullable
+    private ByteBuffer buffer; // 映射的只读视图，position 即读指针
+    private long bytesRemaining;
+    private boolean opened = false;
+    private boolean usingFallback = false;
+
+    // 单独创建时只缓存自己映射过的文件
+    public MappedAssetDataSource(Context context, DataSource fallback) {
+        this(context, fallback, new MappedFiles());
+    }
+
+    MappedAssetDataSource(Context context, DataSource fallback, MappedFiles mappedFiles) {
+        this.context = context;
+        this.fallback = fallback;
+        this.mappedFiles = mappedFiles;
+    }
+
+    @Override
+    public void addTransferListener(TransferListener transferListener) {
+        if (!transferListeners.contains(transferListener)) {
+            transferListeners.add(transferListener);
+        }
+        fallback.addTransferListener(transferListener);
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        uri = dataSpec.uri;
+        MappedByteBuffer mapped = null;
+        if (ASSET_SCHEME.equals(uri.getScheme()) && uri.getPath() != null) {
+            try {
+                mapped = map(uri.getPath().substring(1)); // asset:///music/xxx.mp3 -> music/xxx.mp3
+            } catch (FileNotFoundException e) {
+                // 被压缩的 asset 不能按文件描述符打开
+            }
+        }
+        if (mapped == null) {
+            usingFallback = true;
+            return fallback.open(dataSpec);
+        }
+
+        // 先检查位置再通知监听器：这里抛出时 opened 仍为 false，close() 不会补发 onTransferEnd
+        if (dataSpec.position > mapped.capacity()) {
+            throw new DataSourceException(PlaybackException.ERROR_CODE_IO_READ_POSITION_OUT_OF_RANGE);
+        }
+        this.dataSpec = dataSpec;
+        for (TransferListener listener : transferListeners) {
+            listener.onTransferInitializing(this, dataSpec, /* isNetwork= */ false);
+        }
+        ByteBuffer view = mapped.duplicate();
+        view.position((int) dataSpec.position);
+        buffer = view;
+        bytesRemaining = dataSpec.length != C.LENGTH_UNSET
+                ? Math.min(dataSpec.length, view.remaining()) : view.remaining();
+        opened = true;
+        for (TransferListener listener : transferListeners) {
+            listener.onTransferStart(this, dataSpec, /* isNetwork= */ false);
+        }
+        return bytesRemaining;
+    }
+
+    // 映射整个 asset；映射在关闭文件描述符后仍然有效
+    private MappedByteBuffer map(String path) throws IOException {
+        MappedByteBuffer mapped = mappedFiles.get(path);
+        if (mapped != null) {
+            return mapped;
+        }
+        try (AssetFileDescriptor afd = context.getAssets().openFd(path);
+             FileInputStream in = new FileInputStream(afd.getFileDescriptor());
+             FileChannel channel = in.getChannel()) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+        }
+        mappedFiles.put(path, mapped);
+        return mapped;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) throws IOException {
+        if (usingFallback) {
+            return fallback.read(target, offset, length);
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (bytesRemaining == 0) {
+            return C.RESULT_END_OF_INPUT;
+        }
+        int count = (int) Math.min(length, bytesRemaining);
+        buffer.get(target, offset, count);
+        bytesRemaining -= count;
+        for (TransferListener listener : transferListeners) {
+            listener.onBytesTransferred(this, dataSpec, /* isNetwork= */ false, count);
+        }
+        return count;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return usingFallback ? fallback.getUri() : uri;
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return usingFallback ? fallback.getResponseHeaders() : Collections.emptyMap();
+    }
+
+    @Override
+    public void close() throws IOException {
+        uri = null;
+        buffer = null;
+        if (usingFallback) {
+            usingFallback = false;
+            fallback.close();
+            return;
+        }
+        if (opened) {
+            opened = false;
+            for (TransferListener listener : transferListeners) {
+                listener.onTransferEnd(this, dataSpec, /* isNetwork= */ false);
+            }
+        }
+        dataSpec = null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.musicplayer;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// MediaLibrary.java
+// 全局共享的曲库索引：assets/music 只扫描一次，之后所有组件都从这里读取
+public class MediaLibrary {
+    private static final String TAG = "MediaLibrary";
+    public static final String MUSIC_DIR = "music";
+
+    private static volatile MediaLibrary instance;
+
+    private final TrackIndex index;
+    private final int assetCount; // 前 assetCount 首来自 assets，之后是设备上的音乐
+
+    private MediaLibrary(List<Track> tracks, int assetCount) {
+        this.index = new TrackIndex(tracks);
+        this.assetCount = assetCount;
+    }
+
+    // 获取曲库（第一次调用时扫描 assets）
+    public static MediaLibrary getInstance(Context context) {
+        MediaLibrary library = instance;
+        if (library == null) {
+            synchronized (MediaLibrary.class) {
+                library = instance;
+                if (library == null) {
+                    library = scanAssets(context.getApplicationContext());
+                    instance = library;
+                }
+            }
+        }
+        return library;
+    }
+
+    private static MediaLibrary scanAssets(Context context) {
+        String[] musicFiles = new String[0];
+        try {
+            musicFiles = context.getAssets().list(MUSIC_DIR);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to list music files", e);
+        }
+        return fromFileNames(musicFiles);
+    }
+
+    // 根据文件名列表构建曲库
+    public static MediaLibrary fromFileNames(String[] musicFiles) {
+        List<Track> tracks = new ArrayList<>(musicFiles.length);
+        for (int i = 0; i < musicFiles.length; i++) {
+            String musicFile = musicFiles[i];
+            Uri uri = Uri.parse("asset:///" + MUSIC_DIR + "/" + musicFile);
+            tracks.add(new Track(i, musicFile, stripExtension(musicFile), uri));
+        }
+        return new MediaLibrary(tracks, tracks.size());
+    }
+
+    // 在 assets 的歌曲之后接上设备上的音乐，下标重新编号；列表身份用 Track.getKey()，不受编号影响
+    public MediaLibrary withDeviceTracks(List<Track> deviceTracks) {
+        List<Track> combined = new ArrayList<>(assetCount + deviceTracks.size());
+        combined.addAll(index.getTracks().subList(0, assetCount));
+        for (Track track : deviceTracks) {
+            combined.add(track.withId(combined.size()));
+        }
+        return new MediaLibrary(combined, assetCount);
+    }
+
+    // 曲库变化后替换全局实例，之后读取的组件都会拿到新的曲库
+    public static void setInstance(MediaLibrary library) {
+        synchronized (MediaLibrary.class) {
+            instance = library;
+        }
+    }
+
+    // 去掉文件名后缀
+    public static String stripExtension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+    public List<Track> getTracks() {
+        return index.getTracks();
+    }
+
+    public Track getTrack(int i) {
+        return index.getTracks().get(i);
+    }
+
+    public int size() {
+        return index.getTracks().size();
+    }
+
+    public List<String> getFileNames() {
+        return index.getFileNames();
+    }
+
+    public List<String> getDisplayNames() {
+        return index.getDisplayNames();
+    }
+
+    // 按文件名查曲库下标，不在曲库中时返回 -1
+    public int indexOf(String fileName) {
+        return index.indexOf(fileName);
+    }
+
+    // 来自 assets 的歌曲数，它们排在曲库最前面
+    public int getAssetCount() {
+        return assetCount;
+    }
+
+    // 曲库内容的指纹，文件列表变化时随之变化
+    public long getFingerprint() {
+        return index.getFingerprint();
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.musicplayer;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// MediaStoreLibrary.java
+// 设备上的音乐（MediaStore.Audio）：首次按 _id 分页查询，之后只按 ContentObserver 通知的条目增量更新
+public class MediaStoreLibrary {
+    private static final String TAG = "MediaStoreLibrary";
+    static final int PAGE_SIZE = 500;
+    private static final long CHANGE_DELAY_MS = 500; // 合并短时间内的多次变化通知
+    private static final Uri COLLECTION = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
+    // 只查需要的列
+    private static final String[] PROJECTION = {
+            MediaStore.Audio.Media._ID,
+            MediaStore.Audio.Media.DISPLAY_NAME,
+            MediaStore.Audio.Media.TITLE,
+            MediaStore.Audio.Media.DATE_MODIFIED,
+    };
+    private static final String SELECTION = MediaStore.Audio.Media.IS_MUSIC + " != 0";
+
+    // 设备音乐变化后在主线程回调，列表按 _id 排序
+    public interface Listener {
+        void onTracksChanged(List<Track> tracks);
+    }
+
+    private final ContentResolver resolver;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // _id -> 歌曲，只在 executor 线程访问
+    private final TreeMap<Long, Track> tracks = new TreeMap<>();
+    // 待处理的变化，主线程写入、executor 线程取出
+    private final Set<Long> pendingIds = new HashSet<>();
+    private boolean pendingReload = false;
+    private Listener listener;
+
+    private final ContentObserver observer = new ContentObserver(mainHandler) {
+        @Override
+        public void onChange(boolean selfChange, @Nullable Uri uri) {
+            long id = parseId(uri);
+            synchronized (pendingIds) {
+                if (id < 0) {
+                    pendingReload = true; // 没有具体条目，只能整体重新查询
+                } else {
+                    pendingIds.add(id);
+                }
+            }
+            mainHandler.removeCallbacks(applyChanges);
+            mainHandler.postDelayed(applyChanges, CHANGE_DELAY_MS);
+        }
+    };
+
+    private final Runnable applyChanges = new Runnable() {
+        @Override
+        public void run() {
+            executor.execute(MediaStoreLibrary.this::applyPending);
+        }
+    };
+
+    public MediaStoreLibrary(Context context) {
+        this.resolver = context.getApplicationContext().getContentResolver();
+    }
+
+    // 开始加载并监听变化（需要已授予读取音频权限）
+    public void start(Listener listener) {
+        this.listener = listener;
+        resolver.registerContentObserver(COLLECTION, true, observer);
+        executor.execute(() -> {
+            loadAll();
+            publish();
+        });
+    }
+
+    public void stop() {
+        resolver.unregisterContentObserver(observer);
+        mainHandler.removeCallbacks(applyChanges);
+        executor.shutdownNow();
+        listener = null;
+    }
+
+    // 按 _id 翻页，每次只取 PAGE_SIZE 行，游标窗口保持很小
+    private void loadAll() {
+        tracks.clear();
+        long lastId = -1;
+        try {
+            while (true) {
+                Bundle args = new Bundle();
+                args.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                        SELECTION + " AND " + MediaStore.Audio.Media._ID + " > ?");
+                args.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS,
+                        new String[]{String.valueOf(lastId)});
+                args.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, MediaStore.Audio.Media._ID + " ASC");
+                args.putInt(ContentResolver.QUERY_ARG_LIMIT, PAGE_SIZE);
+                int count = 0;
+                try (Cursor cursor = resolver.query(COLLECTION, PROJECTION, args, null)) {
+                    if (cursor == null) {
+                        return;
+                    }
+                    while (cursor.moveToNext()) {
+                        Track track = toTrack(cursor);
+                        lastId = cursor.getLong(0);
+                        tracks.put(lastId, track);
+                        count++;
+                    }
+                }
+                // 不支持 LIMIT 的系统会一次返回全部，下一页为空后结束
+                if (count < PAGE_SIZE) {
+                    return;
+                }
+            }
+        } catch (SecurityException e) {
+            Log.w(TAG, "No permission to read audio", e);
+        }
+    }
+
+    // 只重新查询变化过的条目：查到的更新，查不到的删除
+    private void applyPending() {
+        Set<Long> ids;
+        boolean reload;
+        synchronized (pendingIds) {
+            ids = new HashSet<>(pendingIds);
+            reload = pendingReload;
+            pendingIds.clear();
+            pendingReload = false;
+        }
+        if (reload) {
+            loadAll();
+        } else {
+            List<Long> list = new ArrayList<>(ids);
+            for (int from = 0; from < list.size(); from += PAGE_SIZE) {
+                updateTracks(list.subList(from, Math.min(from + PAGE_SIZE, list.size())));
+            }
+        }
+        publish();
+    }
+
+    private void updateTracks(List<Long> ids) {
+        StringBuilder selection = new StringBuilder(SELECTION)
+                .append(" AND ").append(MediaStore.Audio.Media._ID).append(" IN (");
+        String[] args = new String[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            selection.append(i == 0 ? "?" : ",?");
+            args[i] = String.valueOf(ids.get(i));
+        }
+        selection.append(')');
+        Set<Long> missing = new HashSet<>(ids);
+        try (Cursor cursor = resolver.query(COLLECTION, PROJECTION, selection.toString(), args, null)) {
+            if (cursor == null) {
+                return;
+            }
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                tracks.put(id, toTrack(cursor));
+                missing.remove(id);
+            }
+        } catch (SecurityException e) {
+            Log.w(TAG, "No permission to read audio", e);
+            return;
+        }
+        for (Long id : missing) {
+            tracks.remove(id);
+        }
+    }
+
+    // 列顺序与 PROJECTION 一致；下标由 MediaLibrary 合并时重新编号
+    private static Track toTrack(Cursor cursor) {
+        long id = cursor.getLong(0);
+        String fileName = cursor.getString(1);
+        String title = cursor.getString(2);
+        if (fileName == null) {
+            fileName = String.valueOf(id);
+        }
+        if (title == null || title.isEmpty()) {
+            title = MediaLibrary.stripExtension(fileName);
+        }
+        return new Track(0, fileName, title, ContentUris.withAppendedId(COLLECTION, id), cursor.getLong(3));
+    }
+
+    private void publish() {
+        List<Track> result = new ArrayList<>(tracks.values());
+        mainHandler.post(() -> {
+            if (listener != null) {
+                listener.onTracksChanged(result);
+            }
+        });
+    }
+
+    // content://media/external/audio/media/123 -> 123，不是单个条目时返回 -1
+    private static long parseId(@Nullable Uri uri) {
+        if (uri == null) {
+            return -1;
+        }
+        try {
+            return ContentUris.parseId(uri);
+        } catch (NumberFormatException | UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+}
@@ -3,18 +3,25 @@ package com.example.musicplayer.ai;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.example.musicplayer.MediaLibrary;
 import com.example.musicplayer.MusicService;
+import com.example.musicplayer.Track;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -23,11 +30,21 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSource;
 
 public class MusicAssistant {
     private static final String TAG = "MusicAssistant";
     private static final String API_URL = "https://api.openai.com/v1/chat/completions";
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final Pattern SONG_TAG_PATTERN = Pattern.compile("【(.*?)】");
+    private static final String REQUEST_HEADER = "{\"model\":\"gpt-4o\",\"temperature\":0.7,";
+    private static final String STREAM_REQUEST_HEADER = "{\"model\":\"gpt-4o\",\"temperature\":0.7,\"stream\":true,";
+    // 系统提示中最多列出的歌曲数和字符数；曲库更大时只列出 assets 和最近加入设备的歌曲，
+    // 列表外的歌曲由 SongMatcher 在整个曲库中按名称匹配
+    private static final int MAX_PROMPT_SONGS = 300;
+    private static final int MAX_PROMPT_CHARS = 6000;
+    // 流式回复的界面刷新间隔：每次回调都要复制一遍目前的全文，按时间节流而不是按块
+    private static final long PARTIAL_UPDATE_INTERVAL_MS = 100;
     private static final String SYSTEM_PROMPT = "你是一个专业的音乐助手，你的工作是帮助用户了解音乐知识、推荐音乐、提供音乐背景信息等。如果用户要求推荐音乐，请根据他们的喜好和情绪推荐具体的歌曲。回答中请明确标出歌曲名，格式为【歌曲名】，以便系统识别并播放。";
 
     private final String apiKey;
@@ -35,63 +52,263 @@ public class MusicAssistant {
     private final Context context;
     private final MusicService musicService;
     private final Handler mainHandler;
-    private final List<ChatMessage> chatHistory;
+    private final String apiUrl;
+    private final ChatHistory chatHistory;
+    private final ResponseCache responseCache;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    // 回复缓存的磁盘读取和命中后的歌曲查找放在这里，主线程只查内存；release() 时关闭，再次用到时重新创建
+    private ExecutorService cacheExecutor;
+    // 请求调度：同一时间只有一轮对话在进行
+    private final ArrayDeque<Turn> pendingTurns = new ArrayDeque<>();
+    private Turn currentTurn;
+    private Call currentCall;
+    private long coalescedCount = 0;
+    // 请求大小统计
+    private long requestCount = 0;
+    private long totalBytesSent = 0;
+    private long lastRequestBytes = 0;
+    // 流式请求耗时统计
+    private volatile long timeToFirstToken = -1;
+    private volatile long timeToFirstPlayback = -1;
+    // 歌曲名索引单独加锁：在后台线程建索引时不挡住主线程上的提问和取消
+    private final Object songMatcherLock = new Object();
+    private MediaLibrary songMatcherLibrary;
+    private SongMatcher songMatcher;
+    // messages 前缀缓存（含系统消息），曲库变化时才重建
+    private MediaLibrary cachedLibrary;
+    private String cachedMessagesPrefix;
 
     public interface ChatCallback {
         void onResponse(String response);
         void onError(String errorMessage);
     }
 
+    // 流式回调：partialResponse 为目前收到的完整文本，最多每 PARTIAL_UPDATE_INTERVAL_MS 回调一次，
+    // 最终全文在 onResponse 中给出
+    public interface StreamCallback extends ChatCallback {
+        void onPartialResponse(String partialResponse);
+    }
+
     public MusicAssistant(Context context, MusicService musicService, String apiKey) {
+        this(context, musicService, apiKey, API_URL, ChatHistory.DEFAULT_CHAR_BUDGET);
+    }
+
+    // apiUrl 可指向本地 mock 服务器，historyCharBudget 为历史消息的字符预算
+    public MusicAssistant(Context context, MusicService musicService, String apiKey,
+                          String apiUrl, int historyCharBudget) {
+        this(context, musicService, apiKey, apiUrl, historyCharBudget, new RetryPolicy(), new CircuitBreaker());
+    }
+
+    // 可以传入固定种子的重试策略和手动时钟的熔断器，用于在 mock 服务器上复现 429/503 序列；
+    // 熔断器默认每个实例一个，需要多个实例共用上游健康状态时由调用方传入同一个
+    public MusicAssistant(Context context, MusicService musicService, String apiKey,
+                          String apiUrl, int historyCharBudget,
+                          RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
         this.context = context;
         this.musicService = musicService;
         this.apiKey = apiKey;
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .build();
+        this.apiUrl = apiUrl;
+        this.client = AssistantHttpClient.get();
         this.mainHandler = new Handler(Looper.getMainLooper());
-        this.chatHistory = new ArrayList<>();
+        this.chatHistory = new ChatHistory(historyCharBudget);
+        this.responseCache = ResponseCache.getInstance(context);
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    // 提前建立连接，减少第一次提问的握手耗时
+    public void warmUp() {
+        AssistantHttpClient.warmUp(apiUrl);
     }
 
+    // 普通对话：同一会话的请求按顺序执行，相同的待处理问题会合并
     public void chat(String userMessage, ChatCallback callback) {
-        // 添加用户消息到历史
-        chatHistory.add(new ChatMessage("user", userMessage));
+        schedule(userMessage, false, callback);
+    }
 
-        // 构建请求
+    // 流式对话：边生成边回调，遇到完整的【歌曲名】立即开始播放
+    public void chatStream(String userMessage, StreamCallback callback) {
+        schedule(userMessage, true, callback);
+    }
+
+    // 取消正在进行和排队中的请求（对话框关闭时调用），之后不会再回调
+    public synchronized void cancelAll() {
+        for (Turn turn : pendingTurns) {
+            turn.canceled = true;
+        }
+        pendingTurns.clear();
+        if (currentTurn != null) {
+            currentTurn.canceled = true;
+            currentTurn = null;
+        }
+        if (currentCall != null) {
+            currentCall.cancel();
+            currentCall = null;
+        }
+    }
+
+    // 对话框关闭时调用：取消请求并关闭后台线程。已排队的磁盘读取仍会执行完，但对应的请求已取消，不会再回调
+    public synchronized void release() {
+        cancelAll();
+        if (cacheExecutor != null) {
+            cacheExecutor.shutdown();
+            cacheExecutor = null;
+        }
+    }
+
+    private synchronized ExecutorService cacheExecutor() {
+        if (cacheExecutor == null) {
+            cacheExecutor = Executors.newSingleThreadExecutor();
+        }
+        return cacheExecutor;
+    }
+
+    // 被合并到已有请求中的提问次数
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    private synchronized void schedule(String userMessage, boolean stream, ChatCallback callback) {
+        String question = userMessage.trim();
+        Turn existing = findTurn(question);
+        if (existing != null) {
+            existing.callbacks.add(callback);
+            coalescedCount++;
+            return;
+        }
+        Turn turn = new Turn(question, stream);
+        turn.callbacks.add(callback);
+        pendingTurns.addLast(turn);
+        if (currentTurn == null) {
+            startNextTurn();
+        }
+    }
+
+    private Turn findTurn(String question) {
+        if (currentTurn != null && currentTurn.question.equals(question)) {
+            return currentTurn;
+        }
+        for (Turn turn : pendingTurns) {
+            if (turn.question.equals(question)) {
+                return turn;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void startNextTurn() {
+        currentTurn = pendingTurns.pollFirst();
+        if (currentTurn == null) {
+            return;
+        }
+        lookUpCache(currentTurn);
+    }
+
+    // 先查内存缓存；没有命中时到后台线程查磁盘，再回到主线程决定是否发请求
+    private void lookUpCache(Turn turn) {
+        final String cacheKey;
+        try {
+            cacheKey = cacheKey(turn.question);
+            if (answerFromCache(turn.question, responseCache.getFromMemory(cacheKey), turn)) {
+                return;
+            }
+        } catch (JSONException e) {
+            turn.onError("请求构建错误: " + e.getMessage());
+            return;
+        }
+        cacheExecutor().execute(() -> {
+            String cached = responseCache.getFromDisk(cacheKey);
+            mainHandler.post(() -> continueTurn(turn, cacheKey, cached));
+        });
+    }
+
+    private synchronized void continueTurn(Turn turn, String cacheKey, String cached) {
+        if (turn.canceled || currentTurn != turn) {
+            return;
+        }
         try {
-            JSONObject jsonBody = new JSONObject();
-            jsonBody.put("model", "gpt-4o");
-            jsonBody.put("temperature", 0.7);
+            if (answerFromCache(turn.question, cached, turn)) {
+                return;
+            }
+        } catch (JSONException e) {
+            turn.onError("请求构建错误: " + e.getMessage());
+            return;
+        }
+        if (turn.stream) {
+            sendChatStream(turn.question, cacheKey, turn);
+        } else {
+            sendChat(turn.question, cacheKey, turn);
+        }
+    }
 
-            JSONArray messagesArray = new JSONArray();
+    private synchronized void finishTurn(Turn turn) {
+        if (currentTurn == turn) {
+            currentTurn = null;
+            currentCall = null;
+            startNextTurn();
+        }
+    }
+
+    // 一轮对话：把结果分发给所有合并进来的回调，结束后开始下一轮
+    private class Turn implements StreamCallback {
+        final String question;
+        final boolean stream;
+        final List<ChatCallback> callbacks = new ArrayList<>();
+        volatile boolean canceled = false;
 
-            // 添加系统提示
-            JSONObject systemMessage = new JSONObject();
-            systemMessage.put("role", "system");
-            systemMessage.put("content", SYSTEM_PROMPT + "\n可用的音乐列表: " + getAvailableSongsAsString());
-            messagesArray.put(systemMessage);
+        Turn(String question, boolean stream) {
+            this.question = question;
+            this.stream = stream;
+        }
+
+        private List<ChatCallback> snapshot() {
+            synchronized (MusicAssistant.this) {
+                return new ArrayList<>(callbacks);
+            }
+        }
 
-            // 添加历史消息
-            for (ChatMessage message : chatHistory) {
-                JSONObject messageObj = new JSONObject();
-                messageObj.put("role", message.getRole());
-                messageObj.put("content", message.getContent());
-                messagesArray.put(messageObj);
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            if (canceled) {
+                return;
+            }
+            for (ChatCallback callback : snapshot()) {
+                if (callback instanceof StreamCallback) {
+                    ((StreamCallback) callback).onPartialResponse(partialResponse);
+                }
             }
+        }
 
-            jsonBody.put("messages", messagesArray);
+        @Override
+        public void onResponse(String response) {
+            if (canceled) {
+                return;
+            }
+            for (ChatCallback callback : snapshot()) {
+                callback.onResponse(response);
+            }
+            finishTurn(this);
+        }
 
-            RequestBody body = RequestBody.create(jsonBody.toString(), JSON);
-            Request request = new Request.Builder()
-                    .url(API_URL)
-                    .addHeader("Authorization", "Bearer " + apiKey)
-                    .addHeader("Content-Type", "application/json")
-                    .post(body)
-                    .build();
+        @Override
+        public void onError(String errorMessage) {
+            if (canceled) {
+                return;
+            }
+            for (ChatCallback callback : snapshot()) {
+                callback.onError(errorMessage);
+            }
+            finishTurn(this);
+        }
+    }
 
-            client.newCall(request).enqueue(new Callback() {
+    private void sendChat(String userMessage, String cacheKey, ChatCallback callback) {
+        // 构建请求
+        try {
+            Request request = buildRequest(userMessage, false);
+
+            enqueueWithRetry(request, 0, callback, new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
                     mainHandler.post(() -> callback.onError("网络错误: " + e.getMessage()));
@@ -105,27 +322,32 @@ public class MusicAssistant {
                             return;
                         }
 
-                        String responseData = response.body().string();
-                        JSONObject jsonResponse = new JSONObject(responseData);
-                        String assistantResponse = jsonResponse.getJSONArray("choices")
-                                .getJSONObject(0)
-                                .getJSONObject("message")
-                                .getString("content");
+                        // 直接从响应流中读取需要的字段，不构建完整的 JSON 树
+                        CompletionParser.Choice choice = CompletionParser.readMessage(
+                                response.body().byteStream());
+                        String assistantResponse = choice.content;
 
                         // 添加助手回复到历史
                         chatHistory.add(new ChatMessage("assistant", assistantResponse));
+                        if (choice.isComplete()) {
+                            cacheIfUseful(cacheKey, assistantResponse);
+                        }
 
                         // 检查是否包含音乐推荐
-                        List<String> recommendedSongs = extractRecommendedSongs(assistantResponse);
+                        List<Track> recommendedSongs = extractRecommendedSongs(assistantResponse);
                         if (!recommendedSongs.isEmpty()) {
                             // 尝试播放推荐的第一首歌
-                            String firstSong = recommendedSongs.get(0);
+                            Track firstSong = recommendedSongs.get(0);
                             tryPlayRecommendedSong(firstSong);
                         }
 
                         mainHandler.post(() -> callback.onResponse(assistantResponse));
                     } catch (JSONException e) {
                         mainHandler.post(() -> callback.onError("解析错误: " + e.getMessage()));
+                    } catch (IOException e) {
+                        mainHandler.post(() -> callback.onError("网络错误: " + e.getMessage()));
+                    } finally {
+                        response.close();
                     }
                 }
             });
@@ -134,50 +356,333 @@ public class MusicAssistant {
         }
     }
 
+    private void sendChatStream(String userMessage, String cacheKey, StreamCallback callback) {
+        try {
+            Request request = buildRequest(userMessage, true);
+            final long startTime = SystemClock.elapsedRealtime();
+            timeToFirstToken = -1;
+            timeToFirstPlayback = -1;
+
+            enqueueWithRetry(request, 0, callback, new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    mainHandler.post(() -> callback.onError("网络错误: " + e.getMessage()));
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    try {
+                        if (!response.isSuccessful()) {
+                            mainHandler.post(() -> callback.onError("API错误: " + response.code()));
+                            return;
+                        }
+
+                        // 只有收到 [DONE] 才会返回，中断时抛出 IOException
+                        String assistantResponse = readStream(response.body().source(), startTime, callback);
+
+                        // 添加助手回复到历史
+                        chatHistory.add(new ChatMessage("assistant", assistantResponse));
+                        cacheIfUseful(cacheKey, assistantResponse);
+
+                        mainHandler.post(() -> callback.onResponse(assistantResponse));
+                    } catch (JSONException e) {
+                        mainHandler.post(() -> callback.onError("解析错误: " + e.getMessage()));
+                    } catch (IOException e) {
+                        mainHandler.post(() -> callback.onError("网络错误: " + e.getMessage()));
+                    } finally {
+                        response.close();
+                    }
+                }
+            });
+        } catch (JSONException e) {
+            callback.onError("请求构建错误: " + e.getMessage());
+        }
+    }
+
+    // 发送请求：可重试的失败按退避时间重新发送，熔断时直接报错
+    private synchronized void enqueueWithRetry(Request request, int attempt,
+                                               ChatCallback chatCallback, Callback callback) {
+        if (!circuitBreaker.allowRequest()) {
+            currentCall = null;
+            mainHandler.post(() -> chatCallback.onError("服务暂时不可用，请稍后再试"));
+            return;
+        }
+        Call newCall = client.newCall(request);
+        currentCall = newCall;
+        newCall.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (call.isCanceled()) {
+                    circuitBreaker.recordCancelled();
+                    callback.onFailure(call, e);
+                    return;
+                }
+                circuitBreaker.recordFailure();
+                if (retryPolicy.shouldRetry(attempt)) {
+                    scheduleRetry(call, request, attempt, retryPolicy.delayFor(attempt, null), chatCallback, callback);
+                    return;
+                }
+                callback.onFailure(call, e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                if (!RetryPolicy.isRetryableStatus(response.code())) {
+                    circuitBreaker.recordSuccess();
+                    callback.onResponse(call, response);
+                    return;
+                }
+                circuitBreaker.recordFailure();
+                if (retryPolicy.shouldRetry(attempt)) {
+                    long delay = retryPolicy.delayFor(attempt, response.header("Retry-After"));
+                    if (delay >= 0) {
+                        response.close();
+                        scheduleRetry(call, request, attempt, delay, chatCallback, callback);
+                        return;
+                    }
+                    // 要求等待太久，不再重试
+                }
+                callback.onResponse(call, response);
+            }
+        });
+    }
+
+    private void scheduleRetry(Call failedCall, Request request, int attempt, long delayMs,
+                               ChatCallback chatCallback, Callback callback) {
+        Log.d(TAG, "Retry #" + (attempt + 1) + " in " + delayMs + "ms");
+        mainHandler.postDelayed(() -> {
+            synchronized (MusicAssistant.this) {
+                // 等待期间请求被取消
+                if (currentCall != failedCall) {
+                    return;
+                }
+                enqueueWithRetry(request, attempt + 1, chatCallback, callback);
+            }
+        }, delayMs);
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    // 缓存键需要在用户消息加入历史之前计算
+    private String cacheKey(String userMessage) throws JSONException {
+        return ResponseCache.key(userMessage,
+                MediaLibrary.getInstance(context).getFingerprint(),
+                chatHistory.contentHash());
+    }
+
+    // 只缓存完整且带有【歌曲名】推荐的回复：重复提问时直接复用推荐，普通闲聊每次重新回答
+    private void cacheIfUseful(String cacheKey, String response) {
+        if (SONG_TAG_PATTERN.matcher(response).find()) {
+            responseCache.put(cacheKey, response);
+        }
+    }
+
+    // 命中缓存时直接回复，不发起网络请求；cached 为 null 表示没有命中。
+    // 在主线程持锁调用，查找推荐歌曲（可能要为大曲库建索引）放到后台线程；其间被取消的轮次不再播放
+    private boolean answerFromCache(String userMessage, String cached, Turn turn)
+            throws JSONException {
+        if (cached == null) {
+            return false;
+        }
+        chatHistory.add(new ChatMessage("user", userMessage));
+        chatHistory.add(new ChatMessage("assistant", cached));
+
+        cacheExecutor().execute(() -> {
+            if (turn.canceled) {
+                return;
+            }
+            List<Track> recommendedSongs = extractRecommendedSongs(cached);
+            if (!recommendedSongs.isEmpty() && !turn.canceled) {
+                tryPlayRecommendedSong(recommendedSongs.get(0));
+            }
+            mainHandler.post(() -> turn.onResponse(cached));
+        });
+        return true;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    // 逐行解析 SSE：每个 "data: {...}" 取 choices[0].delta.content，遇到 [DONE] 结束；
+    // 没有收到 [DONE] 就断开（包括空响应）按网络错误处理，不完整的回复不进历史和缓存
+    private String readStream(BufferedSource source, long startTime, StreamCallback callback)
+            throws IOException, JSONException {
+        StringBuilder text = new StringBuilder();
+        int tagScanFrom = 0;
+        boolean songStarted = false;
+        boolean done = false;
+        long nextPartialTime = 0;
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (!line.startsWith("data:")) {
+                continue; // 空行、注释或其他字段
+            }
+            String data = line.substring(5).trim();
+            if (data.equals("[DONE]")) {
+                done = true;
+                break;
+            }
+            String content = CompletionParser.readDeltaContent(data);
+            if (content.isEmpty()) {
+                continue;
+            }
+            if (timeToFirstToken < 0) {
+                timeToFirstToken = SystemClock.elapsedRealtime() - startTime;
+            }
+            text.append(content);
+            long now = SystemClock.elapsedRealtime();
+            if (now >= nextPartialTime) {
+                nextPartialTime = now + PARTIAL_UPDATE_INTERVAL_MS;
+                final String partial = text.toString();
+                mainHandler.post(() -> callback.onPartialResponse(partial));
+            }
+
+            // 只在新到的文本中查找刚刚闭合的标签
+            if (!songStarted) {
+                int close = text.indexOf("】", tagScanFrom);
+                while (close != -1 && !songStarted) {
+                    int open = text.lastIndexOf("【", close);
+                    if (open >= tagScanFrom && close > open + 1) {
+                        Track track = findMatchingSong(text.substring(open + 1, close));
+                        if (track != null) {
+                            timeToFirstPlayback = SystemClock.elapsedRealtime() - startTime;
+                            tryPlayRecommendedSong(track);
+                            songStarted = true;
+                        }
+                    }
+                    tagScanFrom = close + 1;
+                    close = text.indexOf("】", tagScanFrom);
+                }
+            }
+        }
+        if (!done) {
+            throw new IOException("回复在结束标记前中断");
+        }
+        return text.toString();
+    }
+
+    // 构建请求：请求前缀（含系统提示）+ 历史消息，都使用缓存好的序列化结果
+    private Request buildRequest(String userMessage, boolean stream) throws JSONException {
+        // 添加用户消息到历史
+        chatHistory.add(new ChatMessage("user", userMessage));
+
+        String header = stream ? STREAM_REQUEST_HEADER : REQUEST_HEADER;
+        String messagesPrefix = getMessagesPrefix();
+        String history = chatHistory.getSerialized();
+        String jsonBody = new StringBuilder(header.length() + messagesPrefix.length() + history.length() + 2)
+                .append(header)
+                .append(messagesPrefix)
+                .append(history)
+                .append("]}")
+                .toString();
+
+        byte[] bodyBytes = jsonBody.getBytes(StandardCharsets.UTF_8);
+        recordRequestSize(bodyBytes.length);
+        RequestBody body = RequestBody.create(bodyBytes, JSON);
+        return new Request.Builder()
+                .url(apiUrl)
+                .addHeader("Authorization", "Bearer " + apiKey)
+                .addHeader("Content-Type", "application/json")
+                .post(body)
+                .build();
+    }
+
+    // 流式请求从发出到收到第一个字的耗时（毫秒），未收到时为 -1
+    public long getTimeToFirstToken() {
+        return timeToFirstToken;
+    }
+
+    // 流式请求从发出到开始播放推荐歌曲的耗时（毫秒），未播放时为 -1
+    public long getTimeToFirstPlayback() {
+        return timeToFirstPlayback;
+    }
+
+    private void recordRequestSize(long bytes) {
+        requestCount++;
+        totalBytesSent += bytes;
+        lastRequestBytes = bytes;
+    }
+
+    // 最近一次请求体的字节数
+    public long getLastRequestBytes() {
+        return lastRequestBytes;
+    }
+
+    public long getTotalBytesSent() {
+        return totalBytesSent;
+    }
+
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    public ChatHistory getChatHistory() {
+        return chatHistory;
+    }
+
+    // 序列化后的 messages 前缀，曲库没有变化时直接复用
+    private String getMessagesPrefix() throws JSONException {
+        MediaLibrary library = MediaLibrary.getInstance(context);
+        if (cachedMessagesPrefix == null || library != cachedLibrary) {
+            String systemMessage = new ChatMessage("system",
+                    SYSTEM_PROMPT + "\n可用的音乐列表: " + getAvailableSongsAsString(library)).toJson();
+            cachedMessagesPrefix = "\"messages\":[" + systemMessage + ",";
+            cachedLibrary = library;
+        }
+        return cachedMessagesPrefix;
+    }
+
     // 从回复中提取推荐的歌曲
-    private List<String> extractRecommendedSongs(String response) {
-        List<String> songs = new ArrayList<>();
+    private List<Track> extractRecommendedSongs(String response) {
+        List<Track> songs = new ArrayList<>();
         // 使用正则表达式查找【歌曲名】格式的推荐
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("【(.*?)】");
-        java.util.regex.Matcher matcher = pattern.matcher(response);
+        Matcher matcher = SONG_TAG_PATTERN.matcher(response);
 
         while (matcher.find()) {
             String songName = matcher.group(1);
             if (songName != null && !songName.isEmpty()) {
                 // 检查推荐的歌曲是否在可用列表中
-                String fullSongName = findMatchingSong(songName);
-                if (fullSongName != null) {
-                    songs.add(fullSongName);
+                Track track = findMatchingSong(songName);
+                if (track != null) {
+                    songs.add(track);
                 }
             }
         }
         return songs;
     }
 
-    // 查找匹配的歌曲文件名
-    private String findMatchingSong(String partialName) {
-        try {
-            String[] availableSongs = context.getAssets().list("music");
-            for (String song : availableSongs) {
-                // 移除扩展名进行比较
-                String songNameWithoutExt = song.substring(0, song.lastIndexOf("."));
-                if (songNameWithoutExt.toLowerCase().contains(partialName.toLowerCase())) {
-                    return song;
-                }
+    // 查找最匹配的歌曲
+    private Track findMatchingSong(String partialName) {
+        return getSongMatcher().findBest(partialName);
+    }
+
+    // 歌曲名索引，曲库变化时才重建
+    private SongMatcher getSongMatcher() {
+        synchronized (songMatcherLock) {
+            MediaLibrary library = MediaLibrary.getInstance(context);
+            if (songMatcher == null || library != songMatcherLibrary) {
+                songMatcher = new SongMatcher(library.getTracks());
+                songMatcherLibrary = library;
             }
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to list music files", e);
+            return songMatcher;
         }
-        return null;
     }
 
     // 尝试播放推荐的歌曲
-    private void tryPlayRecommendedSong(String songName) {
+    private void tryPlayRecommendedSong(Track track) {
         if (musicService != null) {
             try {
                 mainHandler.post(() -> {
                     try {
-                        musicService.playMusic(songName);
+                        // 曲库下标与播放列表下标一致，直接按下标播放
+                        musicService.playTrack(track.getId());
                     } catch (Exception e) {
                         Log.e(TAG, "Failed to play recommended song", e);
                     }
@@ -190,30 +695,37 @@ public class MusicAssistant {
 
     // 获取可用的音乐列表
     public List<String> getAvailableSongs() {
-        List<String> songList = new ArrayList<>();
-        try {
-            String[] songs = context.getAssets().list("music");
-            for (String song : songs) {
-                songList.add(song);
-            }
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to list music files", e);
-        }
-        return songList;
+        return MediaLibrary.getInstance(context).getFileNames();
     }
 
-    // 获取可用的音乐列表（字符串形式）
-    private String getAvailableSongsAsString() {
-        List<String> songs = getAvailableSongs();
+    // 获取可用的音乐列表（字符串形式），长度有上限，不随曲库大小增长
+    private String getAvailableSongsAsString(MediaLibrary library) {
+        List<Track> tracks = library.getTracks();
+        List<Track> songs = tracks;
+        if (tracks.size() > MAX_PROMPT_SONGS) {
+            int assetCount = Math.min(library.getAssetCount(), MAX_PROMPT_SONGS);
+            songs = new ArrayList<>(tracks.subList(0, assetCount));
+            List<Track> device = new ArrayList<>(tracks.subList(library.getAssetCount(), tracks.size()));
+            // 最近加入或修改的在前
+            Collections.sort(device, (a, b) -> Long.compare(b.getModified(), a.getModified()));
+            songs.addAll(device.subList(0, Math.min(device.size(), MAX_PROMPT_SONGS - assetCount)));
+        }
         StringBuilder sb = new StringBuilder();
-        for (String song : songs) {
-            // 移除扩展名
-            String songNameWithoutExt = song.substring(0, song.lastIndexOf("."));
-            sb.append(songNameWithoutExt).append(", ");
-        }
-        // 移除最后的逗号和空格
-        if (sb.length() > 2) {
-            sb.setLength(sb.length() - 2);
+        int listed = 0;
+        for (Track song : songs) {
+            String name = song.getDisplayName();
+            if (sb.length() + name.length() + 2 > MAX_PROMPT_CHARS) {
+                break;
+            }
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(name);
+            listed++;
+        }
+        if (listed < tracks.size()) {
+            sb.append("\n（以上只列出 ").append(listed).append(" 首，曲库共 ").append(tracks.size())
+                    .append(" 首；推荐列表外的歌曲时同样用【歌曲名】标出，系统会在曲库中查找）");
         }
         return sb.toString();
     }
@@ -12,11 +12,11 @@ import android.widget.EditText;
 import android.widget.HorizontalScrollView;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
-import android.widget.ScrollView;
-import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.musicplayer.MusicService;
 import com.example.musicplayer.R;
@@ -26,11 +26,11 @@ import java.util.List;
 
 public class MusicAssistantDialog extends Dialog {
     private MusicAssistant musicAssistant;
-    private TextView chatHistoryTextView;
+    private RecyclerView chatRecyclerView;
+    private ChatAdapter chatAdapter;
     private EditText userInputEditText;
     private Button sendButton;
     private ImageButton closeButton;
-    private ScrollView scrollView;
     private LinearLayout suggestedQuestionsLayout;
     private HorizontalScrollView horizontalScrollView;
 
@@ -53,6 +53,7 @@ public class MusicAssistantDialog extends Dialog {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.dialog_music_assistant);
+        musicAssistant.warmUp();
 
         // 设置对话框大小
         WindowManager.LayoutParams params = getWindow().getAttributes();
@@ -61,14 +62,21 @@ public class MusicAssistantDialog extends Dialog {
         getWindow().setAttributes(params);
 
         // 初始化视图
-        chatHistoryTextView = findViewById(R.id.chatHistoryTextView);
+        chatRecyclerView = findViewById(R.id.chatRecyclerView);
         userInputEditText = findViewById(R.id.userInputEditText);
         sendButton = findViewById(R.id.sendButton);
         closeButton = findViewById(R.id.closeButton);
-        scrollView = findViewById(R.id.scrollView);
         suggestedQuestionsLayout = findViewById(R.id.suggestedQuestionsLayout);
         horizontalScrollView = findViewById(R.id.horizontalScrollView);
 
+        chatAdapter = new ChatAdapter();
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        layoutManager.setStackFromEnd(true);
+        chatRecyclerView.setLayoutManager(layoutManager);
+        // 流式更新时不播放默认的闪烁动画
+        chatRecyclerView.setItemAnimator(null);
+        chatRecyclerView.setAdapter(chatAdapter);
+
         // 添加推荐问题按钮
         setupSuggestedQuestions();
 
@@ -84,7 +92,14 @@ public class MusicAssistantDialog extends Dialog {
         closeButton.setOnClickListener(v -> dismiss());
 
         // 添加欢迎消息
-        appendToChatHistory("音乐管家: 你好！我是你的音乐管家。我可以帮你了解音乐知识、推荐音乐，或者帮你找到符合心情的歌曲。有什么我可以帮你的吗？");
+        appendToChatHistory(new ChatMessage("assistant", "你好！我是你的音乐管家。我可以帮你了解音乐知识、推荐音乐，或者帮你找到符合心情的歌曲。有什么我可以帮你的吗？"));
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // 对话框关闭后不再等待回复，后台线程一并关闭；再次显示时按需重新创建
+        musicAssistant.release();
     }
 
     private void setupSuggestedQuestions() {
@@ -108,42 +123,42 @@ public class MusicAssistantDialog extends Dialog {
     }
 
     private void sendMessage(String userMessage) {
-        appendToChatHistory("你: " + userMessage);
+        appendToChatHistory(new ChatMessage("user", userMessage));
         userInputEditText.setText("");
 
-        // 显示加载中提示
-        appendToChatHistory("音乐管家: 思考中...");
+        // 显示加载中提示，之后在原位置更新
+        final int replyPosition = appendToChatHistory(new ChatMessage("assistant", "思考中..."));
+
+        // 发送请求，回复逐段显示
+        musicAssistant.chatStream(userMessage, new MusicAssistant.StreamCallback() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                updateChatMessage(replyPosition, partialResponse);
+            }
 
-        // 发送请求
-        musicAssistant.chat(userMessage, new MusicAssistant.ChatCallback() {
             @Override
             public void onResponse(String response) {
-                // 移除"思考中..."并添加实际回复
-                removePreviousLine();
-                appendToChatHistory("音乐管家: " + response);
+                // 用完整回复替换"思考中..."
+                updateChatMessage(replyPosition, response);
             }
 
             @Override
             public void onError(String errorMessage) {
-                // 移除"思考中..."并添加错误信息
-                removePreviousLine();
-                appendToChatHistory("音乐管家: 抱歉，我遇到了问题: " + errorMessage);
+                // 用错误信息替换"思考中..."
+                updateChatMessage(replyPosition, "抱歉，我遇到了问题: " + errorMessage);
             }
         });
     }
 
-    private void appendToChatHistory(String message) {
-        chatHistoryTextView.append(message + "\n\n");
+    private int appendToChatHistory(ChatMessage message) {
+        int position = chatAdapter.addMessage(message);
         // 滚动到底部
-        scrollView.post(() -> scrollView.fullScroll(View.FOCUS_DOWN));
+        chatRecyclerView.scrollToPosition(position);
+        return position;
     }
 
-    private void removePreviousLine() {
-        String currentText = chatHistoryTextView.getText().toString();
-        int lastIndex = currentText.lastIndexOf("音乐管家: 思考中...");
-        if (lastIndex != -1) {
-            String newText = currentText.substring(0, lastIndex);
-            chatHistoryTextView.setText(newText);
-        }
+    private void updateChatMessage(int position, String content) {
+        chatAdapter.updateMessage(position, new ChatMessage("assistant", content));
+        chatRecyclerView.scrollToPosition(chatAdapter.getItemCount() - 1);
     }
-}
\ No newline at end of file
+}
@@ -1,53 +1,448 @@
 package com.example.musicplayer;
 
+import android.app.Notification;
+import android.app.PendingIntent;
 import android.app.Service;
+import android.content.ContentResolver;
 import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Binder;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.v4.media.MediaDescriptionCompat;
+import android.support.v4.media.session.MediaSessionCompat;
+import android.util.Log;
 
 import androidx.annotation.Nullable;
 
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
 import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.MediaItem;
 import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
+import com.google.android.exoplayer2.ext.mediasession.MediaSessionConnector;
+import com.google.android.exoplayer2.ext.mediasession.TimelineQueueNavigator;
+import com.google.android.exoplayer2.source.DefaultMediaSourceFactory;
+import com.google.android.exoplayer2.ui.PlayerNotificationManager;
 
-import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 // MusicService.java
+// 以 started + 前台 Service 运行，持有唯一的播放器；Activity 和助手只是绑定上来的控制端，
+// 解绑（旋转屏幕、返回键）不会释放播放器
 public class MusicService extends Service {
+    private static final String TAG = "MusicService";
+    private static final String CHANNEL_ID = "playback";
+    private static final int NOTIFICATION_ID = 1;
     ExoPlayer player;
-    List<MediaItem> mediaItems = new ArrayList<>();
-    int currentTrackIndex = 0;
+    PlayQueue queue; // 播放器中只放当前歌曲附近的一段，完整曲库以 Track 形式保存
+    Map<Uri, Integer> trackIndex = new HashMap<>(); // URI -> 曲库下标（文件名可能重复）
     int playMode = Player.REPEAT_MODE_ALL; // 默认为顺序播放
     boolean prepared = false;
 
+    // 本地文件读取很快：起播只需少量缓冲，同时缓冲足够长，让下一首在当前歌曲结束前就已加载
+    private static final int MIN_BUFFER_MS = 10_000;
+    private static final int MAX_BUFFER_MS = 60_000;
+    private static final int BUFFER_FOR_PLAYBACK_MS = 100;
+    private static final int BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS = 250;
+    private static final long CROSSFADE_CHECK_INTERVAL_MS = 250;
+    private static final int MAX_HISTORY = 100;
+    private static final long SAVE_DELAY_MS = 1000; // 状态变化后合并一秒再写快照
 
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private VolumeFader volumeFader;
+    private long crossfadeMs = 0; // 0 表示不淡入淡出
+    // 切歌耗时统计：从发出命令到第一帧音频开始播放
+    private long switchCommandTimeMs = -1;
+    private long lastTrackSwitchLatencyMs = -1;
+    // 随机播放时的播放历史，"上一首"按实际听过的顺序返回
+    private final ArrayDeque<Integer> history = new ArrayDeque<>();
+    private int lastIndex = C.INDEX_UNSET;
+    private boolean goingBack = false;
+    private long startupTimeMs = -1;
 
+    // 曲库扫描和快照读写都在后台线程；曲库就绪前收到的播放命令先排队，就绪后按顺序执行（都在主线程访问）
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private PlaybackStateStore stateStore;
+    private boolean ready = false;
+    private boolean restored = false; // 已从快照恢复上次的歌曲，曲库还没加载完
+    private final List<Runnable> pendingCommands = new ArrayList<>();
+    private final List<OnReadyListener> readyListeners = new ArrayList<>();
+    private PlayerNotificationManager notificationManager;
+    // 媒体会话：锁屏、蓝牙耳机和系统媒体控件通过它控制同一个播放器
+    private MediaSessionCompat mediaSession;
+    private MediaSessionConnector sessionConnector;
+    // 歌曲元数据目录：uri.toString() -> 元数据（assets 和设备曲库的文件名可能重复），后台增量扫描完成后替换
+    private CatalogScanner catalogScanner;
+    private Map<String, TrackInfo> catalog = Collections.emptyMap();
+    private MediaStoreLibrary deviceLibrary; // 设备上的音乐，授予权限后才开启
+    private boolean deviceLibraryLoaded = false; // 设备曲库是否已发布过一次
+
+    // 播放器和曲库准备好后在主线程回调
+    public interface OnReadyListener {
+        void onReady(MusicService service);
+    }
+
+    // 主线程只创建播放器，扫描曲库放到后台线程
     public void init() {
         if (player == null) {
-            player = new ExoPlayer.Builder(MusicService.this).build(); // 创建播放器
-
-            try {
-                // 获取 assets/music 文件夹中的所有音乐文件
-                String[] musicFiles = getAssets().list("music");
-                for (String musicFile : musicFiles) {
-                    // 构建音乐文件的 URI
-                    Uri uri = Uri.parse("asset:///music/" + musicFile);
-                    // 创建 MediaItem 并添加到播放列表
-                    mediaItems.add(MediaItem.fromUri(uri));
+            final long start = SystemClock.elapsedRealtime();
+            DefaultLoadControl loadControl = new DefaultLoadControl.Builder()
+                    .setBufferDurationsMs(MIN_BUFFER_MS, MAX_BUFFER_MS,
+                            BUFFER_FOR_PLAYBACK_MS, BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS)
+                    .setPrioritizeTimeOverSizeThresholds(true)
+                    .build();
+            player = new ExoPlayer.Builder(MusicService.this)
+                    .setLoadControl(loadControl)
+                    // assets 中的歌曲通过内存映射读取
+                    .setMediaSourceFactory(new DefaultMediaSourceFactory(
+                            new MappedAssetDataSource.Factory(MusicService.this)))
+                    .build(); // 创建播放器
+            player.addAnalyticsListener(analyticsListener);
+            player.addListener(playerListener);
+            volumeFader = new VolumeFader(player);
+            queue = new PlayQueue(player);
+            player.setRepeatMode(playMode); // 顺序播放
+            initNotification();
+            stateStore = new PlaybackStateStore(this);
+
+            ioExecutor.execute(() -> {
+                // 先读快照，在曲库扫描完成前就恢复上次的歌曲和进度
+                PlaybackStateStore.State saved = stateStore.read();
+                if (saved != null) {
+                    handler.post(() -> restoreState(saved, start));
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
+                // 从共享曲库中读取所有音乐文件
+                MediaLibrary library = MediaLibrary.getInstance(this);
+                handler.post(() -> {
+                    if (player == null) {
+                        return; // 扫描期间 Service 已销毁
+                    }
+                    if (restored) {
+                        // 正在播放的恢复项保留，只在它前后补齐窗口
+                        replaceLibrary(library.getTracks());
+                        restored = false;
+                    } else {
+                        // 只把第一首附近的一段放进播放器
+                        setPlaylist(library.getTracks());
+                    }
+                    player.prepare();
+                    startupTimeMs = SystemClock.elapsedRealtime() - start;
+                    Log.d(TAG, "Player init: " + startupTimeMs + "ms, " + queue.size() + " tracks, "
+                            + queue.getWindowSize() + " media items");
+                    onReady();
+                    // 设备曲库还没加载，这次只整理 assets 的条目
+                    scanCatalog(library.getTracks(), CatalogScanner.ASSET_SOURCES);
+                });
+            });
+        }
+    }
+
+    // 播放时显示前台通知，暂停后退出前台但保留通知，滑掉通知后停止 Service
+    private void initNotification() {
+        mediaSession = new MediaSessionCompat(this, TAG);
+        mediaSession.setSessionActivity(contentIntent());
+        mediaSession.setActive(true);
+        sessionConnector = new MediaSessionConnector(mediaSession);
+        // 会话里只发布当前歌曲；系统控件的上一首/下一首走 Service 的切歌逻辑，和界面按钮一致
+        sessionConnector.setQueueNavigator(new TimelineQueueNavigator(mediaSession, 1) {
+            @Override
+            public MediaDescriptionCompat getMediaDescription(Player player, int windowIndex) {
+                int index = queue.getCurrentTrackIndex();
+                Track track = index >= 0 ? queue.getTrack(index) : null;
+                return new MediaDescriptionCompat.Builder()
+                        .setMediaId(track != null ? String.valueOf(track.getId()) : null)
+                        .setTitle(track != null ? track.getDisplayName() : null)
+                        .build();
             }
 
-            // 将所有音乐文件添加到播放器的播放列表中
-            player.addMediaItems(mediaItems);
-            player.setRepeatMode(playMode); // 顺序播放
-            player.prepare();
+            @Override
+            public void onSkipToNext(Player player) {
+                playNextTrack();
+            }
+
+            @Override
+            public void onSkipToPrevious(Player player) {
+                playPreviousTrack();
+            }
+        });
+        sessionConnector.setPlayer(player);
+        notificationManager = new PlayerNotificationManager.Builder(this, NOTIFICATION_ID, CHANNEL_ID)
+                .setChannelNameResourceId(R.string.playback_channel_name)
+                .setMediaDescriptionAdapter(descriptionAdapter)
+                .setNotificationListener(notificationListener)
+                .setSmallIconResourceId(R.drawable.play)
+                .build();
+        notificationManager.setUseFastForwardAction(false);
+        notificationManager.setUseRewindAction(false);
+        notificationManager.setMediaSessionToken(mediaSession.getSessionToken());
+        notificationManager.setPlayer(player);
+    }
+
+    private PendingIntent contentIntent() {
+        Intent intent = new Intent(this, MainActivity.class);
+        return PendingIntent.getActivity(this, 0, intent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    private final PlayerNotificationManager.MediaDescriptionAdapter descriptionAdapter =
+            new PlayerNotificationManager.MediaDescriptionAdapter() {
+        @Override
+        public CharSequence getCurrentContentTitle(Player player) {
+            return MediaLibrary.stripExtension(snapshot.getFileName());
+        }
+
+        @Nullable
+        @Override
+        public PendingIntent createCurrentContentIntent(Player player) {
+            return contentIntent();
+        }
+
+        @Nullable
+        @Override
+        public CharSequence getCurrentContentText(Player player) {
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public Bitmap getCurrentLargeIcon(Player player, PlayerNotificationManager.BitmapCallback callback) {
+            return null;
+        }
+    };
+
+    private final PlayerNotificationManager.NotificationListener notificationListener =
+            new PlayerNotificationManager.NotificationListener() {
+        @Override
+        public void onNotificationPosted(int notificationId, Notification notification, boolean ongoing) {
+            if (ongoing) {
+                startForeground(notificationId, notification,
+                        ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+            } else {
+                stopForeground(STOP_FOREGROUND_DETACH);
+            }
+        }
+
+        @Override
+        public void onNotificationCancelled(int notificationId, boolean dismissedByUser) {
+            stopForeground(STOP_FOREGROUND_REMOVE);
+            stopSelf();
+        }
+    };
+
+    // 换成新的曲库，当前歌曲仍在曲库中时不打断播放
+    private void replaceLibrary(List<Track> tracks) {
+        int current = queue.getCurrentTrackIndex();
+        Uri currentUri = current >= 0 ? queue.getTrack(current).getUri() : null;
+        if (currentUri != null && !deviceLibraryLoaded
+                && ContentResolver.SCHEME_CONTENT.equals(currentUri.getScheme())) {
+            // 恢复的是设备上的歌曲而设备曲库还没加载：先接在曲库末尾，保留歌曲和进度，
+            // 设备曲库发布后再按 URI 定位
+            List<Track> withCurrent = new ArrayList<>(tracks.size() + 1);
+            withCurrent.addAll(tracks);
+            withCurrent.add(queue.getTrack(current).withId(tracks.size()));
+            tracks = withCurrent;
+        }
+        rebuildTrackIndex(tracks);
+        history.clear();
+        lastIndex = C.INDEX_UNSET;
+        queue.replaceTracks(tracks, currentUri != null ? indexOf(currentUri) : -1);
+    }
+
+    // 开启设备上的音乐（MediaStore），需要已授予读取音频权限；之后按变化通知增量更新
+    public void enableDeviceLibrary() {
+        runWhenReady(() -> {
+            if (player == null || deviceLibrary != null) {
+                return;
+            }
+            deviceLibrary = new MediaStoreLibrary(this);
+            deviceLibrary.start(deviceTracks -> {
+                if (player == null) {
+                    return;
+                }
+                // 助手和播放列表都从全局曲库读取
+                MediaLibrary library = MediaLibrary.getInstance(this).withDeviceTracks(deviceTracks);
+                MediaLibrary.setInstance(library);
+                deviceLibraryLoaded = true;
+                replaceLibrary(library.getTracks());
+                publishSnapshot();
+                scanCatalog(library.getTracks(), CatalogScanner.ALL_SOURCES);
+            });
+        });
+    }
+
+    // 后台解析新增或变化的歌曲，完成后刷新界面上的歌曲信息
+    private void scanCatalog(List<Track> tracks, Set<String> sources) {
+        if (catalogScanner == null) {
+            catalogScanner = new CatalogScanner(this, TrackCatalog.getInstance(this));
+        }
+        catalogScanner.scan(tracks, sources, updated -> {
+            if (player == null) {
+                return;
+            }
+            catalog = updated;
+            publishSnapshot();
+        });
+    }
+
+    // 歌曲的元数据，目录中还没有时返回 null
+    @Nullable
+    public TrackInfo getTrackInfo(Uri uri) {
+        return catalog.get(uri.toString());
+    }
+
+    // 只放入快照中的那一首并定位到上次的进度，此时即可播放
+    private void restoreState(PlaybackStateStore.State saved, long start) {
+        if (player == null || ready) {
+            return;
+        }
+        setPlayMode(saved.repeatMode);
+        queue.setShuffleEnabled(saved.shuffleEnabled);
+        Track track = new Track(0, saved.fileName, MediaLibrary.stripExtension(saved.fileName),
+                Uri.parse(saved.uri));
+        queue.setTracks(Collections.singletonList(track), 0);
+        player.seekTo(0, saved.position);
+        player.prepare();
+        restored = true;
+        Log.d(TAG, "Playback state restored: " + (SystemClock.elapsedRealtime() - start) + "ms, read "
+                + stateStore.getLastReadTime() + "us");
+    }
+
+    // 合并短时间内的多次状态变化，只写一次快照
+    private void scheduleSave() {
+        handler.removeCallbacks(saveState);
+        handler.postDelayed(saveState, SAVE_DELAY_MS);
+    }
+
+    // 在主线程取状态，在后台线程写文件
+    private final Runnable saveState = new Runnable() {
+        @Override
+        public void run() {
+            if (player == null || stateStore == null) {
+                return;
+            }
+            int index = queue.getCurrentTrackIndex();
+            if (index < 0) {
+                return;
+            }
+            Track track = queue.getTrack(index);
+            PlaybackStateStore.State state = new PlaybackStateStore.State(track.getFileName(),
+                    track.getUri().toString(), player.getCurrentPosition(), player.getRepeatMode(),
+                    queue.isShuffleEnabled());
+            ioExecutor.execute(() -> stateStore.write(state));
+        }
+    };
+
+    private void onReady() {
+        ready = true;
+        List<Runnable> commands = new ArrayList<>(pendingCommands);
+        pendingCommands.clear();
+        for (Runnable command : commands) {
+            command.run();
+        }
+        List<OnReadyListener> listeners = new ArrayList<>(readyListeners);
+        readyListeners.clear();
+        for (OnReadyListener listener : listeners) {
+            listener.onReady(this);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // 已就绪时立即回调，否则等初始化完成后回调一次
+    public void whenReady(OnReadyListener listener) {
+        if (ready) {
+            listener.onReady(this);
+        } else {
+            readyListeners.add(listener);
+        }
+    }
+
+    public void removeReadyListener(OnReadyListener listener) {
+        readyListeners.remove(listener);
+    }
+
+    // 未就绪时把命令排队
+    private void runWhenReady(Runnable command) {
+        if (ready) {
+            command.run();
+        } else {
+            pendingCommands.add(command);
+        }
+    }
+
+    // 恢复了上次的歌曲后，播放/暂停不必等曲库扫描完成
+    private void runWhenPlayable(Runnable command) {
+        if (ready || restored) {
+            command.run();
+        } else {
+            pendingCommands.add(command);
+        }
+    }
+
+    // 曲库中的全部歌曲，未就绪时为空
+    public List<Track> getTracks() {
+        return ready ? queue.getTracks() : Collections.<Track>emptyList();
+    }
+
+    // 替换播放列表，同时重建 URI 索引
+    public void setPlaylist(List<Track> tracks) {
+        rebuildTrackIndex(tracks);
+        history.clear();
+        lastIndex = C.INDEX_UNSET;
+        if (queue != null) {
+            queue.setTracks(tracks, 0);
+        }
+    }
+
+    private void rebuildTrackIndex(List<Track> tracks) {
+        trackIndex.clear();
+        for (int i = 0; i < tracks.size(); i++) {
+            trackIndex.put(tracks.get(i).getUri(), i);
+        }
+    }
+
+    // 播放器初始化耗时（毫秒），未初始化时为 -1
+    public long getStartupTime() {
+        return startupTimeMs;
+    }
+
+    // 查找歌曲在播放列表中的下标，找不到返回 -1
+    public int indexOf(Uri uri) {
+        Integer index = trackIndex.get(uri);
+        return index != null ? index : -1;
+    }
+
+    // 按文件名查找，文件名可能重复，返回第一首；找不到返回 -1
+    private int indexOfFileName(String name) {
+        // 播放列表就是全局曲库时直接查索引；恢复的歌曲接在末尾等情况再逐个比较
+        int indexed = MediaLibrary.getInstance(this).indexOf(name);
+        if (indexed >= 0 && indexed < queue.size() && queue.getTrack(indexed).getFileName().equals(name)) {
+            return indexed;
         }
+        List<Track> tracks = queue.getTracks();
+        for (int i = 0; i < tracks.size(); i++) {
+            if (tracks.get(i).getFileName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     public boolean isPlaying() {
@@ -55,59 +450,226 @@ public class MusicService extends Service {
     }
 
     public void play() {
-        if (player != null) {
+        runWhenPlayable(() -> {
+            if (player != null) {
+                player.play();
+            }
+        });
+    }
+
+    public void pause() {
+        runWhenPlayable(() -> {
+            if (player != null) {
+                player.pause();
+            }
+        });
+    }
+
+    public void playMusic(String name) {
+        runWhenReady(() -> {
+            int index = indexOfFileName(name);
+            if (index >= 0) {
+                playTrack(index);
+            }
+        });
+    }
+
+    // 按曲库下标播放，无需字符串匹配
+    public void playTrack(int index) {
+        runWhenReady(() -> {
+            if (player != null && index >= 0 && index < queue.size()) {
+                switchTo(index);
+            }
+        });
+    }
+
+    // 切换到曲库中的另一首：在窗口内时播放器的列表不会重建，已缓冲的数据可以直接使用
+    private void switchTo(int index) {
+        switchCommandTimeMs = System.currentTimeMillis();
+        if (crossfadeMs > 0 && player.isPlaying()) {
+            // 先淡出当前歌曲，再切换并淡入
+            volumeFader.fadeTo(0f, crossfadeMs / 2, () -> {
+                queue.moveTo(index);
+                player.play();
+                volumeFader.fadeTo(1f, crossfadeMs / 2, null);
+            });
+        } else {
+            volumeFader.cancel();
+            player.setVolume(1f);
+            queue.moveTo(index);
             player.play();
         }
     }
 
-    public void pause() {
-        if (player != null) {
-            player.pause();
+    // 设置淡入淡出时长，0 表示关闭
+    public void setCrossfadeDuration(long durationMs) {
+        crossfadeMs = Math.max(0, durationMs);
+        handler.removeCallbacks(crossfadeCheck);
+        if (crossfadeMs > 0) {
+            handler.post(crossfadeCheck);
+        } else if (volumeFader != null) {
+            volumeFader.cancel();
+            player.setVolume(1f);
         }
     }
 
-    public void playMusic(String name) {
-        if (player != null) {
-            for (int i = 0; i < mediaItems.size(); i++) {
-                MediaItem mediaItem = mediaItems.get(i);
-                String fileName = getFileNameFromMediaItem(mediaItem);
-                if (fileName.equals(name)) {
-                    player.seekTo(i, 0);
-                    player.play();
-                    break;
+    public long getCrossfadeDuration() {
+        return crossfadeMs;
+    }
+
+    // 最近一次切歌从命令到开始出声的耗时（毫秒），没有记录时为 -1
+    public long getLastTrackSwitchLatency() {
+        return lastTrackSwitchLatencyMs;
+    }
+
+    // 自动切到下一首前淡出
+    private final Runnable crossfadeCheck = new Runnable() {
+        @Override
+        public void run() {
+            if (player != null && player.isPlaying() && !volumeFader.isFading()
+                    && playMode != Player.REPEAT_MODE_ONE) {
+                long duration = player.getDuration();
+                long remaining = duration - player.getCurrentPosition();
+                if (duration != C.TIME_UNSET && remaining <= crossfadeMs / 2) {
+                    volumeFader.fadeTo(0f, Math.max(remaining, 1), null);
+                } else if (player.getVolume() < 1f) {
+                    // 淡出后又拖回了前面
+                    player.setVolume(1f);
                 }
             }
+            handler.postDelayed(this, CROSSFADE_CHECK_INTERVAL_MS);
+        }
+    };
+
+    private final Player.Listener playerListener = new Player.Listener() {
+        @Override
+        public void onMediaItemTransition(@Nullable MediaItem mediaItem, int reason) {
+            queue.onPositionChanged();
+            recordHistory(queue.getCurrentTrackIndex());
+            // 自动切歌后淡入
+            if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_AUTO && crossfadeMs > 0) {
+                volumeFader.fadeTo(1f, crossfadeMs / 2, null);
+            }
         }
 
+        // 切歌（onMediaItemTransition）、播放/暂停（onIsPlayingChanged）、缓冲/结束（onPlaybackStateChanged）等
+        // 同一批事件合并后只发布一次
+        @Override
+        public void onEvents(Player player, Player.Events events) {
+            if (events.containsAny(
+                    Player.EVENT_MEDIA_ITEM_TRANSITION,
+                    Player.EVENT_IS_PLAYING_CHANGED,
+                    Player.EVENT_PLAYBACK_STATE_CHANGED,
+                    Player.EVENT_PLAY_WHEN_READY_CHANGED,
+                    Player.EVENT_REPEAT_MODE_CHANGED,
+                    Player.EVENT_TIMELINE_CHANGED)) {
+                publishSnapshot();
+            }
+            if (events.containsAny(
+                    Player.EVENT_MEDIA_ITEM_TRANSITION,
+                    Player.EVENT_IS_PLAYING_CHANGED,
+                    Player.EVENT_POSITION_DISCONTINUITY,
+                    Player.EVENT_REPEAT_MODE_CHANGED)) {
+                scheduleSave();
+            }
+        }
+    };
+
+    // 播放状态观察者，在主线程回调
+    public interface PlaybackObserver {
+        void onPlaybackChanged(PlaybackSnapshot snapshot);
+    }
+
+    private final List<PlaybackObserver> observers = new CopyOnWriteArrayList<>();
+    private PlaybackSnapshot snapshot = new PlaybackSnapshot(-1, "", null, false, false,
+            Player.STATE_IDLE, C.TIME_UNSET, Player.REPEAT_MODE_ALL, false);
+
+    // 注册后立即收到一次当前状态
+    public void addPlaybackObserver(PlaybackObserver observer) {
+        observers.add(observer);
+        observer.onPlaybackChanged(snapshot);
     }
 
-    public String getFileNameFromMediaItem(MediaItem mediaItem) {
-        Uri uri = mediaItem.playbackProperties.uri;
-        return uri.getLastPathSegment();
+    public void removePlaybackObserver(PlaybackObserver observer) {
+        observers.remove(observer);
     }
 
-    public void playNextTrack() {
-        currentTrackIndex++;
-        if (currentTrackIndex >= mediaItems.size()) {
-            currentTrackIndex = 0; // 如果超出了列表范围，回到第一首
+    public PlaybackSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private void publishSnapshot() {
+        int index = queue.getCurrentTrackIndex();
+        Track track = index >= 0 ? queue.getTrack(index) : null;
+        snapshot = new PlaybackSnapshot(index, track != null ? track.getFileName() : "",
+                track != null ? track.getUri() : null, player.getPlayWhenReady(), player.isPlaying(),
+                player.getPlaybackState(), player.getDuration(), player.getRepeatMode(),
+                queue.isShuffleEnabled());
+        for (PlaybackObserver observer : observers) {
+            observer.onPlaybackChanged(snapshot);
         }
-        player.seekToDefaultPosition(currentTrackIndex);
-        player.play();
     }
 
-    public void playPreviousTrack() {
-        currentTrackIndex--;
-        if (currentTrackIndex < 0) {
-            currentTrackIndex = mediaItems.size() - 1; // 如果低于列表范围，回到最后一首
+    private final AnalyticsListener analyticsListener = new AnalyticsListener() {
+        @Override
+        public void onAudioPositionAdvancing(EventTime eventTime, long playoutStartSystemTimeMs) {
+            if (switchCommandTimeMs > 0) {
+                lastTrackSwitchLatencyMs = playoutStartSystemTimeMs - switchCommandTimeMs;
+                switchCommandTimeMs = -1;
+                Log.d(TAG, "Track switch latency: " + lastTrackSwitchLatencyMs + "ms");
+            }
+        }
+    };
+
+    // 记录切歌前的那一首；按"上一首"回退时不记录
+    private void recordHistory(int index) {
+        if (goingBack) {
+            goingBack = false;
+        } else if (lastIndex != C.INDEX_UNSET && lastIndex != index) {
+            if (history.size() >= MAX_HISTORY) {
+                history.removeFirst();
+            }
+            history.addLast(lastIndex);
         }
-        player.seekToDefaultPosition(currentTrackIndex);
-        player.play();
+        lastIndex = index;
+    }
+
+    // 当前下标以播放器为准，自动切歌后也不会错位；随机播放时按随机顺序，超出范围时首尾相接
+    public void playNextTrack() {
+        runWhenReady(() -> {
+            if (player == null || queue.size() == 0) {
+                return;
+            }
+            switchTo(queue.nextOf(Math.max(queue.getCurrentTrackIndex(), 0)));
+        });
+    }
+
+    public void playPreviousTrack() {
+        runWhenReady(() -> {
+            if (player == null || queue.size() == 0) {
+                return;
+            }
+            if (queue.isShuffleEnabled() && !history.isEmpty()) {
+                // 随机播放时回到上一首实际播放过的歌曲
+                goingBack = true;
+                switchTo(history.removeLast());
+                return;
+            }
+            int previous = queue.previousOf(Math.max(queue.getCurrentTrackIndex(), 0));
+            if (previous == C.INDEX_UNSET) {
+                player.seekTo(0); // 已经是随机顺序的第一首，从头播放
+                return;
+            }
+            switchTo(previous);
+        });
     }
 
     public void seekTo(long position) {
-        if (player != null) {
-            player.seekTo(position);
-        }
+        runWhenReady(() -> {
+            if (player != null) {
+                player.seekTo(position);
+            }
+        });
     }
     // 获取当前播放进度
     public long getContentPosition() {
@@ -127,11 +689,7 @@ public class MusicService extends Service {
 
     // 获取当前正在播放的歌曲名
     public String getCurrentSongName() {
-        if (currentTrackIndex >= 0 && currentTrackIndex < mediaItems.size()) {
-            MediaItem mediaItem = mediaItems.get(currentTrackIndex);
-            return getFileNameFromMediaItem(mediaItem);
-        }
-        return "";
+        return snapshot.getFileName();
     }
 
     // 获取当前播放模式
@@ -142,7 +700,25 @@ public class MusicService extends Service {
     // 设置播放模式
     public void setPlayMode(int mode) {
         playMode = mode;
-        player.setRepeatMode(playMode); // 更新播放模式
+        if (player != null) {
+            player.setRepeatMode(playMode); // 更新播放模式
+        }
+    }
+
+    // 随机播放开关，只替换播放器中当前歌曲前后的窗口，曲库保持不变
+    public void setShuffleEnabled(boolean enabled) {
+        runWhenReady(() -> {
+            if (player != null && queue.isShuffleEnabled() != enabled) {
+                history.clear();
+                queue.setShuffleEnabled(enabled);
+                publishSnapshot();
+                scheduleSave();
+            }
+        });
+    }
+
+    public boolean isShuffleEnabled() {
+        return queue != null && queue.isShuffleEnabled();
     }
 
 
@@ -165,9 +741,52 @@ public class MusicService extends Service {
         init();
     }
 
+    // 由 startService 启动后一直运行，直到通知被移除或没有在播放时任务被划掉
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onTaskRemoved(Intent rootIntent) {
+        super.onTaskRemoved(rootIntent);
+        handler.removeCallbacks(saveState);
+        saveState.run();
+        if (!isPlaying()) {
+            stopSelf();
+        }
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
+        // 释放播放器前写入最后的状态，已提交的写入会在后台线程执行完
+        handler.removeCallbacks(saveState);
+        saveState.run();
+        ioExecutor.shutdown();
+        pendingCommands.clear();
+        readyListeners.clear();
+        if (catalogScanner != null) {
+            catalogScanner.shutdown();
+        }
+        if (deviceLibrary != null) {
+            deviceLibrary.stop();
+        }
+        handler.removeCallbacks(crossfadeCheck);
+        if (volumeFader != null) {
+            volumeFader.cancel();
+        }
+        if (notificationManager != null) {
+            notificationManager.setPlayer(null);
+        }
+        if (sessionConnector != null) {
+            sessionConnector.setPlayer(null);
+        }
+        if (mediaSession != null) {
+            mediaSession.setActive(false);
+            mediaSession.release();
+            mediaSession = null;
+        }
         if (player != null) {
             player.stop();
             player.release();
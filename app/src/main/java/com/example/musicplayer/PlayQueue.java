@@ -0,0 +1,233 @@
+package com.example.musicplayer;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.MediaItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+// PlayQueue.java
+// 播放队列：完整曲库只保存为 Track 列表，播放器里只放当前歌曲前后的一段窗口，
+// 播放推进时再按页补充，启动时间和常驻的 MediaItem 数量与曲库大小无关
+public class PlayQueue {
+    static final int PAGE_SIZE = 25;
+    // 窗口最多：前后各两页 + 当前歌曲；曲库不超过这个数时直接全部放进播放器
+    static final int MAX_WINDOW = PAGE_SIZE * 4 + 1;
+
+    private final ExoPlayer player;
+    private final Random random = new Random();
+    private List<Track> tracks = Collections.emptyList();
+    private final List<Integer> window = new ArrayList<>(); // 窗口内各项对应的曲库下标，与播放器列表一一对应
+    private boolean shuffleEnabled = false;
+    private LazyShuffleOrder shuffleOrder;
+
+    public PlayQueue(ExoPlayer player) {
+        this.player = player;
+    }
+
+    // 替换曲库，并把窗口放到 startIndex 处
+    public void setTracks(List<Track> tracks, int startIndex) {
+        this.tracks = tracks;
+        shuffleOrder = new LazyShuffleOrder(tracks.size(), random.nextLong());
+        window.clear();
+        if (tracks.isEmpty()) {
+            player.clearMediaItems();
+            return;
+        }
+        load(Math.max(0, Math.min(startIndex, tracks.size() - 1)));
+    }
+
+    public List<Track> getTracks() {
+        return tracks;
+    }
+
+    public int size() {
+        return tracks.size();
+    }
+
+    public Track getTrack(int index) {
+        return tracks.get(index);
+    }
+
+    // 当前歌曲的曲库下标，没有歌曲时为 -1
+    public int getCurrentTrackIndex() {
+        int windowIndex = player.getCurrentMediaItemIndex();
+        return windowIndex >= 0 && windowIndex < window.size() ? window.get(windowIndex) : -1;
+    }
+
+    // 播放器中实际存在的 MediaItem 数量
+    public int getWindowSize() {
+        return window.size();
+    }
+
+    private boolean isPaged() {
+        return tracks.size() > MAX_WINDOW;
+    }
+
+    // 播放顺序中的下一首（首尾相接）
+    public int nextOf(int index) {
+        if (!shuffleEnabled) {
+            return (index + 1) % tracks.size();
+        }
+        int next = shuffleOrder.getNextIndex(index);
+        return next != C.INDEX_UNSET ? next : shuffleOrder.getFirstIndex();
+    }
+
+    // 播放顺序中的上一首（首尾相接）；随机播放时在随机顺序的开头返回 C.INDEX_UNSET，
+    // 不回绕到末尾，否则要生成整个随机顺序
+    public int previousOf(int index) {
+        if (!shuffleEnabled) {
+            return (index - 1 + tracks.size()) % tracks.size();
+        }
+        return shuffleOrder.getPreviousIndex(index);
+    }
+
+    // 切换到曲库中的某一首：在窗口内直接 seek，否则以它为中心重新装载窗口
+    public void moveTo(int index) {
+        int windowIndex = window.indexOf(index);
+        if (windowIndex >= 0) {
+            player.seekToDefaultPosition(windowIndex);
+        } else {
+            load(index);
+        }
+    }
+
+    public boolean isShuffleEnabled() {
+        return shuffleEnabled;
+    }
+
+    // 开关随机播放：当前歌曲不受影响，只替换它前后的窗口
+    public void setShuffleEnabled(boolean enabled) {
+        if (shuffleEnabled == enabled) {
+            return;
+        }
+        shuffleEnabled = enabled;
+        if (enabled) {
+            shuffleOrder = new LazyShuffleOrder(tracks.size(), random.nextLong());
+        }
+        int current = player.getCurrentMediaItemIndex();
+        if (current >= 0 && current < window.size()) {
+            rebuildAround(current, window.get(current));
+        }
+    }
+
+    // 替换曲库但不打断当前歌曲：它在新曲库中的下标为 currentIndex（-1 表示已不存在，从头开始）
+    public void replaceTracks(List<Track> tracks, int currentIndex) {
+        int current = player.getCurrentMediaItemIndex();
+        if (currentIndex < 0 || current < 0 || current >= window.size()) {
+            setTracks(tracks, 0);
+            return;
+        }
+        this.tracks = tracks;
+        shuffleOrder = new LazyShuffleOrder(tracks.size(), random.nextLong());
+        rebuildAround(current, currentIndex);
+    }
+
+    // 删掉当前歌曲前后的项再按播放顺序重新补齐，不打断正在播放的这一首
+    private void rebuildAround(int current, int index) {
+        player.removeMediaItems(current + 1, window.size());
+        player.removeMediaItems(0, current);
+        window.clear();
+        window.add(index);
+        append(isPaged() ? PAGE_SIZE : tracks.size() - 1);
+        prepend(isPaged() ? PAGE_SIZE : 0);
+    }
+
+    // 每次切歌后调用：离窗口边缘太近时补一页，离得太远的部分释放掉
+    public void onPositionChanged() {
+        if (!isPaged()) {
+            return;
+        }
+        int current = player.getCurrentMediaItemIndex();
+        if (current < 0 || current >= window.size()) {
+            return;
+        }
+        int ahead = window.size() - 1 - current;
+        if (ahead < PAGE_SIZE / 2) {
+            append(PAGE_SIZE);
+        } else if (ahead > PAGE_SIZE * 2) {
+            int end = window.size() - (ahead - PAGE_SIZE);
+            player.removeMediaItems(end, window.size());
+            window.subList(end, window.size()).clear();
+        }
+        if (current < PAGE_SIZE / 2) {
+            prepend(PAGE_SIZE);
+        } else if (current > PAGE_SIZE * 2) {
+            int count = current - PAGE_SIZE;
+            player.removeMediaItems(0, count);
+            window.subList(0, count).clear();
+        }
+    }
+
+    // 以 index 为中心装载窗口；曲库较小时整个播放顺序都放进播放器，由播放器自己循环
+    private void load(int index) {
+        int before = isPaged() ? PAGE_SIZE : 0;
+        int after = isPaged() ? PAGE_SIZE : tracks.size() - 1;
+        window.clear();
+        for (int i = 0, first = index; i < before; i++) {
+            first = previousOf(first);
+            if (first == C.INDEX_UNSET) {
+                break; // 随机顺序的开头
+            }
+            window.add(0, first);
+        }
+        int start = window.size();
+        window.add(index);
+        for (int i = 0, last = index; i < after; i++) {
+            last = nextOf(last);
+            window.add(last);
+        }
+        List<MediaItem> items = new ArrayList<>(window.size());
+        for (int i : window) {
+            items.add(toMediaItem(i));
+        }
+        player.setMediaItems(items, start, 0);
+    }
+
+    private void append(int count) {
+        if (count <= 0) {
+            return;
+        }
+        List<MediaItem> items = new ArrayList<>(count);
+        int last = window.get(window.size() - 1);
+        for (int i = 0; i < count; i++) {
+            last = nextOf(last);
+            window.add(last);
+            items.add(toMediaItem(last));
+        }
+        player.addMediaItems(items);
+    }
+
+    private void prepend(int count) {
+        if (count <= 0) {
+            return;
+        }
+        List<Integer> indices = new ArrayList<>(count);
+        List<MediaItem> items = new ArrayList<>(count);
+        int first = window.get(0);
+        for (int i = 0; i < count; i++) {
+            first = previousOf(first);
+            if (first == C.INDEX_UNSET) {
+                break; // 随机顺序的开头
+            }
+            indices.add(0, first);
+            items.add(0, toMediaItem(first));
+        }
+        if (indices.isEmpty()) {
+            return;
+        }
+        window.addAll(0, indices);
+        player.addMediaItems(0, items);
+    }
+
+    private MediaItem toMediaItem(int index) {
+        Track track = tracks.get(index);
+        return new MediaItem.Builder()
+                .setMediaId(String.valueOf(track.getId()))
+                .setUri(track.getUri())
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.musicplayer;
+
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+// PlaybackSnapshot.java
+// 某一时刻的播放状态（不可变），由 MusicService 在播放器事件发生时发布
+public class PlaybackSnapshot {
+    private final int trackIndex;
+    private final String fileName;
+    @Nullable
+    private final Uri uri;
+    private final boolean playWhenReady;
+    private final boolean playing;
+    private final int playbackState;
+    private final long duration;
+    private final int repeatMode;
+    private final boolean shuffleEnabled;
+
+    public PlaybackSnapshot(int trackIndex, String fileName, @Nullable Uri uri, boolean playWhenReady,
+                            boolean playing, int playbackState, long duration, int repeatMode, boolean shuffleEnabled) {
+        this.trackIndex = trackIndex;
+        this.fileName = fileName;
+        this.uri = uri;
+        this.playWhenReady = playWhenReady;
+        this.playing = playing;
+        this.playbackState = playbackState;
+        this.duration = duration;
+        this.repeatMode = repeatMode;
+        this.shuffleEnabled = shuffleEnabled;
+    }
+
+    // 当前歌曲在播放列表中的下标，没有歌曲时为 -1
+    public int getTrackIndex() {
+        return trackIndex;
+    }
+
+    // 当前歌曲的文件名，没有歌曲时为空字符串
+    public String getFileName() {
+        return fileName;
+    }
+
+    // 当前歌曲的 URI，没有歌曲时为 null
+    @Nullable
+    public Uri getUri() {
+        return uri;
+    }
+
+    // 用户是否要求播放（缓冲中也为 true）
+    public boolean getPlayWhenReady() {
+        return playWhenReady;
+    }
+
+    // 是否真正在出声
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    // Player.STATE_IDLE / STATE_BUFFERING / STATE_READY / STATE_ENDED
+    public int getPlaybackState() {
+        return playbackState;
+    }
+
+    // 歌曲总时长（毫秒），未知时为 C.TIME_UNSET
+    public long getDuration() {
+        return duration;
+    }
+
+    public int getRepeatMode() {
+        return repeatMode;
+    }
+
+    public boolean isShuffleEnabled() {
+        return shuffleEnabled;
+    }
+}
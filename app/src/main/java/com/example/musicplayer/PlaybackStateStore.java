@@ -0,0 +1,108 @@
+package com.example.musicplayer;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// PlaybackStateStore.java
+// 播放状态快照：当前歌曲、进度、循环/随机模式写入一个几十字节的二进制文件，
+// 冷启动时在曲库扫描完成前读取，用户可以马上继续播放
+public class PlaybackStateStore {
+    private static final String TAG = "PlaybackStateStore";
+    private static final String FILE_NAME = "playback_state.bin";
+    private static final int MAGIC = 0x4d505331; // "MPS1"
+    private static final int VERSION = 2; // 2：去掉了曲库下标，歌曲只按 URI 定位
+
+    // 某一时刻需要保存的播放状态（不可变）
+    public static class State {
+        final String fileName;
+        final String uri;
+        final long position;
+        final int repeatMode;
+        final boolean shuffleEnabled;
+
+        public State(String fileName, String uri, long position, int repeatMode, boolean shuffleEnabled) {
+            this.fileName = fileName;
+            this.uri = uri;
+            this.position = position;
+            this.repeatMode = repeatMode;
+            this.shuffleEnabled = shuffleEnabled;
+        }
+    }
+
+    private final File file;
+    private volatile long lastReadTimeUs = -1;
+    private volatile long lastWriteTimeUs = -1;
+
+    public PlaybackStateStore(Context context) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    // 读取快照，没有或已损坏时返回 null（在后台线程调用）
+    @Nullable
+    public State read() {
+        if (!file.exists()) {
+            return null;
+        }
+        long start = SystemClock.elapsedRealtimeNanos();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                return null;
+            }
+            State state = new State(in.readUTF(), in.readUTF(), in.readLong(), in.readByte(), in.readBoolean());
+            lastReadTimeUs = (SystemClock.elapsedRealtimeNanos() - start) / 1000;
+            return state;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read playback state", e);
+            return null;
+        }
+    }
+
+    // 先写临时文件再重命名，进程中途被杀也不会留下半个快照（在后台线程调用）
+    public void write(State state) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(state.fileName);
+            out.writeUTF(state.uri);
+            out.writeLong(state.position);
+            out.writeByte(state.repeatMode);
+            out.writeBoolean(state.shuffleEnabled);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write playback state", e);
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.w(TAG, "Failed to replace playback state");
+            return;
+        }
+        lastWriteTimeUs = (SystemClock.elapsedRealtimeNanos() - start) / 1000;
+    }
+
+    public void clear() {
+        file.delete();
+    }
+
+    // 最近一次读取耗时（微秒），没有记录时为 -1
+    public long getLastReadTime() {
+        return lastReadTimeUs;
+    }
+
+    // 最近一次写入耗时（微秒），没有记录时为 -1
+    public long getLastWriteTime() {
+        return lastWriteTimeUs;
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.musicplayer;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckedTextView;
+import android.widget.SectionIndexer;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+// PlaylistAdapter.java
+// 播放列表：列表差异和分段索引在后台线程计算，行视图复用，末尾固定一行"返回"
+public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.ViewHolder> implements SectionIndexer {
+    private static final int TYPE_TRACK = 0;
+    private static final int TYPE_BACK = 1;
+    // 歌曲的稳定 ID 都是非负数；-1 是 RecyclerView.NO_ID，不能用
+    private static final long BACK_ITEM_ID = Long.MIN_VALUE;
+
+    public interface OnItemClickListener {
+        void onTrackClick(int position, Track track);
+
+        void onBackClick();
+    }
+
+    private static final DiffUtil.ItemCallback<Track> DIFF_CALLBACK = new DiffUtil.ItemCallback<Track>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Track oldItem, @NonNull Track newItem) {
+            return oldItem.getKey().equals(newItem.getKey());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Track oldItem, @NonNull Track newItem) {
+            return oldItem.getFileName().equals(newItem.getFileName())
+                    && oldItem.getDisplayName().equals(newItem.getDisplayName());
+        }
+    };
+
+    // 差异计算和分段索引共用的后台线程；与 AsyncListDiffer 默认的线程池一样在整个进程内共享
+    private static final Executor BACKGROUND = Executors.newSingleThreadExecutor();
+
+    private final AsyncListDiffer<Track> differ = new AsyncListDiffer<>(
+            new AdapterListUpdateCallback(this),
+            new AsyncDifferConfig.Builder<>(DIFF_CALLBACK).setBackgroundThreadExecutor(BACKGROUND).build());
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final OnItemClickListener listener;
+    private int selectedPosition = RecyclerView.NO_POSITION;
+
+    // 分段索引（按歌曲名首字符），只在主线程读写
+    private String[] sections = new String[0];
+    private int[] sectionStarts = new int[0];
+    private List<Track> submittedList; // 最近一次提交的列表
+    private List<Track> committedList; // 差异已应用、正在显示的列表
+    private Sections pendingSections; // 后台算好、等列表提交后再替换的分段
+
+    public PlaylistAdapter(OnItemClickListener listener) {
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    // 提交新列表；与上次提交的是同一个对象时不做任何事。
+    // 分段和差异都在后台计算，两者都完成后才替换分段，保证分段和显示的列表一致
+    public void submitList(List<Track> tracks) {
+        if (tracks == submittedList) {
+            return;
+        }
+        submittedList = tracks;
+        differ.submitList(tracks, () -> {
+            committedList = tracks;
+            applySectionsIfReady();
+        });
+        BACKGROUND.execute(() -> {
+            Sections built = Sections.of(tracks);
+            mainHandler.post(() -> {
+                if (tracks == submittedList) {
+                    pendingSections = built;
+                    applySectionsIfReady();
+                }
+            });
+        });
+    }
+
+    private void applySectionsIfReady() {
+        if (pendingSections != null && pendingSections.source == committedList) {
+            sections = pendingSections.names;
+            sectionStarts = pendingSections.starts;
+            pendingSections = null;
+        }
+    }
+
+    public void setSelectedPosition(int position) {
+        int old = selectedPosition;
+        selectedPosition = position;
+        if (old != RecyclerView.NO_POSITION) {
+            notifyItemChanged(old);
+        }
+        if (position != RecyclerView.NO_POSITION) {
+            notifyItemChanged(position);
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size() + 1;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return position == differ.getCurrentList().size() ? TYPE_BACK : TYPE_TRACK;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        if (getItemViewType(position) == TYPE_BACK) {
+            return BACK_ITEM_ID;
+        }
+        return differ.getCurrentList().get(position).getStableId();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(android.R.layout.simple_list_item_single_choice, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        if (getItemViewType(position) == TYPE_BACK) {
+            holder.textView.setText("返回");
+            holder.textView.setChecked(false);
+            holder.itemView.setBackgroundResource(0);
+            return;
+        }
+        Track track = differ.getCurrentList().get(position);
+        boolean selected = position == selectedPosition;
+        holder.textView.setText(track.getFileName());
+        holder.textView.setChecked(selected);
+        // 设置高亮背景色
+        holder.itemView.setBackgroundResource(selected ? R.color.purple_200 : 0);
+    }
+
+    class ViewHolder extends RecyclerView.ViewHolder {
+        final CheckedTextView textView;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            textView = (CheckedTextView) itemView;
+            itemView.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) {
+                    return;
+                }
+                if (getItemViewType() == TYPE_BACK) {
+                    listener.onBackClick();
+                } else {
+                    setSelectedPosition(position);
+                    listener.onTrackClick(position, differ.getCurrentList().get(position));
+                }
+            });
+        }
+    }
+
+    // 某个列表的分段索引（不可变），在后台线程构建
+    private static class Sections {
+        final List<Track> source;
+        final String[] names;
+        final int[] starts;
+
+        private Sections(List<Track> source, String[] names, int[] starts) {
+            this.source = source;
+            this.names = names;
+            this.starts = starts;
+        }
+
+        static Sections of(List<Track> tracks) {
+            List<String> names = new ArrayList<>();
+            List<Integer> starts = new ArrayList<>();
+            String last = null;
+            for (int i = 0; i < tracks.size(); i++) {
+                String section = sectionOf(tracks.get(i).getDisplayName());
+                if (!section.equals(last)) {
+                    names.add(section);
+                    starts.add(i);
+                    last = section;
+                }
+            }
+            int[] startArray = new int[starts.size()];
+            for (int i = 0; i < startArray.length; i++) {
+                startArray[i] = starts.get(i);
+            }
+            return new Sections(tracks, names.toArray(new String[0]), startArray);
+        }
+    }
+
+    private static String sectionOf(String name) {
+        if (name.isEmpty()) {
+            return "#";
+        }
+        char c = Character.toUpperCase(name.charAt(0));
+        return Character.isLetterOrDigit(c) ? String.valueOf(c) : "#";
+    }
+
+    @Override
+    public Object[] getSections() {
+        return sections;
+    }
+
+    @Override
+    public int getPositionForSection(int sectionIndex) {
+        if (sectionStarts.length == 0) {
+            return 0;
+        }
+        sectionIndex = Math.max(0, Math.min(sectionIndex, sectionStarts.length - 1));
+        return sectionStarts[sectionIndex];
+    }
+
+    @Override
+    public int getSectionForPosition(int position) {
+        // 二分查找 position 所在的分段
+        int lo = 0;
+        int hi = sectionStarts.length - 1;
+        int result = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sectionStarts[mid] <= position) {
+                result = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return result;
+    }
+}
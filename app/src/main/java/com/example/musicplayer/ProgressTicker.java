@@ -0,0 +1,101 @@
+package com.example.musicplayer;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+// ProgressTicker.java
+// 主线程上的进度刷新器：同一时间只有一个回调在排队，可以随时暂停/恢复
+public class ProgressTicker {
+    public static final long DEFAULT_INTERVAL_MS = 1000;
+
+    public interface OnTickListener {
+        void onTick();
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final OnTickListener listener;
+    private long intervalMs;
+    private boolean running = false;
+
+    // 统计实际送达 UI 的刷新次数
+    private long totalTicks = 0;
+    private int windowTicks = 0;
+    private long windowStart = 0;
+    private float ticksPerSecond = 0;
+
+    private final Runnable tickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!running) {
+                return;
+            }
+            countTick();
+            listener.onTick();
+            handler.postDelayed(this, intervalMs);
+        }
+    };
+
+    public ProgressTicker(OnTickListener listener) {
+        this(listener, DEFAULT_INTERVAL_MS);
+    }
+
+    public ProgressTicker(OnTickListener listener, long intervalMs) {
+        this.listener = listener;
+        this.intervalMs = intervalMs;
+    }
+
+    // 开始刷新（已经在运行时不会重复调度）
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        windowStart = SystemClock.elapsedRealtime();
+        windowTicks = 0;
+        handler.post(tickRunnable);
+    }
+
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(tickRunnable);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // 设置刷新间隔，运行中立即生效
+    public void setInterval(long intervalMs) {
+        this.intervalMs = intervalMs;
+        if (running) {
+            handler.removeCallbacks(tickRunnable);
+            handler.post(tickRunnable);
+        }
+    }
+
+    public long getInterval() {
+        return intervalMs;
+    }
+
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    // 最近一秒内实际送达 UI 的刷新次数
+    public float getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    private void countTick() {
+        totalTicks++;
+        windowTicks++;
+        long now = SystemClock.elapsedRealtime();
+        long elapsed = now - windowStart;
+        if (elapsed >= 1000) {
+            ticksPerSecond = windowTicks * 1000f / elapsed;
+            windowTicks = 0;
+            windowStart = now;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.musicplayer.ai;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// 助手回复缓存：内存 LRU + 有大小上限的磁盘目录，条目超过 TTL 后失效。
+// 内存和磁盘各用一把锁：主线程只查内存，磁盘读写和文件名哈希都在后台线程
+public class ResponseCache {
+    private static final String TAG = "ResponseCache";
+    private static final String DIR_NAME = "assistant_responses";
+    public static final int DEFAULT_MEMORY_ENTRIES = 32;
+    public static final long DEFAULT_DISK_BYTES = 512 * 1024;
+    public static final long DEFAULT_TTL_MS = 24 * 60 * 60 * 1000L;
+    // 规范化问题时忽略空白和标点
+    private static final Pattern PUNCTUATION = Pattern.compile("[\\s？?！!。.,，、]+");
+
+    private static ResponseCache instance;
+
+    private final File dir;
+    private final int maxMemoryEntries;
+    private final long maxDiskBytes;
+    private final long ttlMs;
+    private final LinkedHashMap<String, Entry> memory; // 同时作为内存层的锁
+    private final Object diskLock = new Object();
+
+    // 命中统计（由 memory 锁保护）
+    private long memoryHits = 0;
+    private long diskHits = 0;
+    private long misses = 0;
+
+    private static class Entry {
+        final String response;
+        final long createdAt;
+
+        Entry(String response, long createdAt) {
+            this.response = response;
+            this.createdAt = createdAt;
+        }
+    }
+
+    public static synchronized ResponseCache getInstance(Context context) {
+        if (instance == null) {
+            File dir = new File(context.getApplicationContext().getCacheDir(), DIR_NAME);
+            instance = new ResponseCache(dir, DEFAULT_MEMORY_ENTRIES, DEFAULT_DISK_BYTES, DEFAULT_TTL_MS);
+        }
+        return instance;
+    }
+
+    public ResponseCache(File dir, int maxMemoryEntries, long maxDiskBytes, long ttlMs) {
+        this.dir = dir;
+        this.maxMemoryEntries = maxMemoryEntries;
+        this.maxDiskBytes = maxDiskBytes;
+        this.ttlMs = ttlMs;
+        this.memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResponseCache.this.maxMemoryEntries;
+            }
+        };
+    }
+
+    // 缓存键：规范化的问题 + 曲库指纹 + 之前的对话历史；不做哈希，可以在主线程计算
+    public static String key(String question, long libraryFingerprint, int historyHash) {
+        String normalized = PUNCTUATION.matcher(question.toLowerCase(Locale.ROOT)).replaceAll("");
+        return normalized + '\u0000' + libraryFingerprint + '\u0000' + historyHash;
+    }
+
+    // 只查内存，不碰磁盘，可以在主线程调用；没有则返回 null
+    public String getFromMemory(String key) {
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - entry.createdAt > ttlMs) {
+                memory.remove(key);
+                return null;
+            }
+            memoryHits++;
+            return entry.response;
+        }
+    }
+
+    // 查磁盘，命中后放回内存；需要在后台线程调用
+    public String getFromDisk(String key) {
+        Entry entry;
+        synchronized (diskLock) {
+            entry = readFromDisk(fileName(key), System.currentTimeMillis());
+        }
+        synchronized (memory) {
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            memory.put(key, entry);
+            diskHits++;
+            return entry.response;
+        }
+    }
+
+    // 先查内存再查磁盘；会读文件，需要在后台线程调用
+    public String get(String key) {
+        String response = getFromMemory(key);
+        return response != null ? response : getFromDisk(key);
+    }
+
+    // 写入内存后再写磁盘；需要在后台线程调用
+    public void put(String key, String response) {
+        Entry entry = new Entry(response, System.currentTimeMillis());
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        synchronized (diskLock) {
+            writeToDisk(fileName(key), entry);
+        }
+    }
+
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        synchronized (diskLock) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    public long getMemoryHits() {
+        synchronized (memory) {
+            return memoryHits;
+        }
+    }
+
+    public long getDiskHits() {
+        synchronized (memory) {
+            return diskHits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (memory) {
+            return misses;
+        }
+    }
+
+    // 磁盘文件名：缓存键的 SHA-256
+    private static String fileName(String key) {
+        return sha256(key);
+    }
+
+    // 文件格式：第一行是写入时间，之后是回复内容
+    private Entry readFromDisk(String fileName, long now) {
+        File file = new File(dir, fileName);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            String content = new String(bytes, 0, read, StandardCharsets.UTF_8);
+            int newline = content.indexOf('\n');
+            long createdAt = Long.parseLong(content.substring(0, newline));
+            if (now - createdAt > ttlMs) {
+                file.delete();
+                return null;
+            }
+            return new Entry(content.substring(newline + 1), createdAt);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to read cached response", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(String fileName, Entry entry) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        File file = new File(dir, fileName);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write((entry.createdAt + "\n" + entry.response).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write cached response", e);
+            file.delete();
+            return;
+        }
+        trimDisk();
+    }
+
+    // 超过磁盘上限时先删除最旧的文件
+    private void trimDisk() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length && total > maxDiskBytes; i++) {
+            total -= files[i].length();
+            files[i].delete();
+        }
+    }
+
+    private static String sha256(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format(Locale.ROOT, "%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
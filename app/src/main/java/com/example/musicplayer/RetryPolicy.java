@@ -0,0 +1,86 @@
+package com.example.musicplayer.ai;
+
+import java.util.Random;
+
+// 重试策略：429/5xx 和网络错误可以重试；优先遵守 Retry-After，否则使用带随机抖动的指数退避
+public class RetryPolicy {
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_BASE_DELAY_MS = 500;
+    public static final long DEFAULT_MAX_DELAY_MS = 8000;
+    // 服务端要求等待超过这个时间时不再重试，直接把错误交给调用方
+    public static final long DEFAULT_MAX_RETRY_AFTER_MS = 60_000;
+
+    private final int maxRetries;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final long maxRetryAfterMs;
+    private final Random random;
+
+    // 统计
+    private long retryCount = 0;
+    private long retryAfterCount = 0;
+
+    public RetryPolicy() {
+        this(DEFAULT_MAX_RETRIES, DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS, new Random());
+    }
+
+    // random 可以传入固定种子，方便得到确定的退避时间
+    public RetryPolicy(int maxRetries, long baseDelayMs, long maxDelayMs, Random random) {
+        this(maxRetries, baseDelayMs, maxDelayMs, DEFAULT_MAX_RETRY_AFTER_MS, random);
+    }
+
+    public RetryPolicy(int maxRetries, long baseDelayMs, long maxDelayMs, long maxRetryAfterMs,
+                       Random random) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxRetryAfterMs = maxRetryAfterMs;
+        this.random = random;
+    }
+
+    public static boolean isRetryableStatus(int code) {
+        return code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    // attempt 为已经重试的次数，第一次请求为 0
+    public boolean shouldRetry(int attempt) {
+        return attempt < maxRetries;
+    }
+
+    // 计算下一次重试前的等待时间；Retry-After 按原值等待，超过上限时返回 -1 表示不再重试
+    public synchronized long delayFor(int attempt, String retryAfter) {
+        long retryAfterMs = parseRetryAfter(retryAfter);
+        if (retryAfterMs > maxRetryAfterMs) {
+            return -1;
+        }
+        retryCount++;
+        if (retryAfterMs >= 0) {
+            retryAfterCount++;
+            return retryAfterMs;
+        }
+        // full jitter：在 [0, min(max, base * 2^attempt)] 中随机
+        long cap = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt, 20));
+        return (long) (random.nextDouble() * (cap + 1));
+    }
+
+    // 只支持秒数形式的 Retry-After，无法解析时返回 -1
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            long seconds = Long.parseLong(retryAfter.trim());
+            return seconds >= 0 ? seconds * 1000 : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public synchronized long getRetryCount() {
+        return retryCount;
+    }
+
+    public synchronized long getRetryAfterCount() {
+        return retryAfterCount;
+    }
+}
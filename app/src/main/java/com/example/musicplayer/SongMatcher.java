@@ -0,0 +1,197 @@
+package com.example.musicplayer.ai;
+
+import com.example.musicplayer.Track;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// 歌曲名模糊匹配：对规范化后的歌曲名建立二元组（bigram）倒排索引，返回按相关度排序的候选
+public class SongMatcher {
+    private static final int[] EMPTY = new int[0];
+    // 没有子串命中时，bigram 重合度（Dice 系数）至少要达到这个值
+    private static final float MIN_FUZZY_SCORE = 0.5f;
+
+    private final List<Track> tracks;
+    private final String[] names; // 规范化后的歌曲名
+    private final Map<Integer, int[]> index; // bigram -> 包含它的歌曲下标（升序）
+
+    public SongMatcher(List<Track> tracks) {
+        this.tracks = tracks;
+        this.names = new String[tracks.size()];
+        Map<Integer, List<Integer>> postings = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            names[i] = normalize(tracks.get(i).getDisplayName());
+            String name = names[i];
+            for (int j = 0; j + 1 < name.length(); j++) {
+                List<Integer> list = postings.get(bigram(name, j));
+                if (list == null) {
+                    list = new ArrayList<>();
+                    postings.put(bigram(name, j), list);
+                }
+                // 同一首歌的重复 bigram 只记一次
+                if (list.isEmpty() || list.get(list.size() - 1) != i) {
+                    list.add(i);
+                }
+            }
+        }
+        this.index = new HashMap<>(postings.size() * 2);
+        for (Map.Entry<Integer, List<Integer>> entry : postings.entrySet()) {
+            List<Integer> list = entry.getValue();
+            int[] ids = new int[list.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = list.get(i);
+            }
+            index.put(entry.getKey(), ids);
+        }
+    }
+
+    // 小写并去掉空白，和索引中的歌曲名保持一致
+    public static String normalize(String s) {
+        String lower = s.toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(lower.length());
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int bigram(String s, int i) {
+        return (s.charAt(i) << 16) | s.charAt(i + 1);
+    }
+
+    // 最匹配的一首，没有则返回 null
+    public Track findBest(String query) {
+        List<Track> result = find(query, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    // 按相关度排序的候选：完全相同 > 前缀 > 包含 > bigram 相似
+    public List<Track> find(String query, int maxResults) {
+        String q = normalize(query);
+        if (q.isEmpty() || names.length == 0) {
+            return Collections.emptyList();
+        }
+        List<Candidate> candidates = new ArrayList<>();
+        if (q.length() < 2) {
+            // 单个字符无法使用 bigram 索引
+            for (int i = 0; i < names.length; i++) {
+                addIfContains(candidates, i, q);
+            }
+        } else {
+            int[] ids = intersectPostings(q);
+            for (int id : ids) {
+                addIfContains(candidates, id, q);
+            }
+            if (candidates.isEmpty()) {
+                addFuzzyCandidates(candidates, q);
+            }
+        }
+        Collections.sort(candidates);
+        List<Track> result = new ArrayList<>(Math.min(maxResults, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < maxResults; i++) {
+            result.add(tracks.get(candidates.get(i).id));
+        }
+        return result;
+    }
+
+    private void addIfContains(List<Candidate> candidates, int id, String q) {
+        String name = names[id];
+        if (name.equals(q)) {
+            candidates.add(new Candidate(id, 3f, 0));
+        } else if (name.startsWith(q)) {
+            candidates.add(new Candidate(id, 2f, name.length() - q.length()));
+        } else if (name.contains(q)) {
+            candidates.add(new Candidate(id, 1f, name.length() - q.length()));
+        }
+    }
+
+    // 所有 bigram 的倒排列表取交集，从最短的列表开始
+    private int[] intersectPostings(String q) {
+        int[][] lists = new int[q.length() - 1][];
+        for (int j = 0; j + 1 < q.length(); j++) {
+            int[] ids = index.get(bigram(q, j));
+            if (ids == null) {
+                return EMPTY;
+            }
+            lists[j] = ids;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] result = lists[0];
+        for (int k = 1; k < lists.length && result.length > 0; k++) {
+            result = intersect(result, lists[k]);
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // 统计每首歌与查询共有的 bigram 数，按 Dice 系数打分
+    private void addFuzzyCandidates(List<Candidate> candidates, String q) {
+        Map<Integer, Integer> overlap = new HashMap<>();
+        int queryBigrams = q.length() - 1;
+        for (int j = 0; j < queryBigrams; j++) {
+            int[] ids = index.get(bigram(q, j));
+            if (ids == null) {
+                continue;
+            }
+            for (int id : ids) {
+                Integer count = overlap.get(id);
+                overlap.put(id, count == null ? 1 : count + 1);
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : overlap.entrySet()) {
+            int id = entry.getKey();
+            int nameBigrams = Math.max(1, names[id].length() - 1);
+            float dice = 2f * entry.getValue() / (queryBigrams + nameBigrams);
+            if (dice >= MIN_FUZZY_SCORE) {
+                candidates.add(new Candidate(id, dice, Math.abs(names[id].length() - q.length())));
+            }
+        }
+    }
+
+    private static class Candidate implements Comparable<Candidate> {
+        final int id;
+        final float score;
+        final int lengthDiff;
+
+        Candidate(int id, float score, int lengthDiff) {
+            this.id = id;
+            this.score = score;
+            this.lengthDiff = lengthDiff;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (score != other.score) {
+                return Float.compare(other.score, score);
+            }
+            if (lengthDiff != other.lengthDiff) {
+                return Integer.compare(lengthDiff, other.lengthDiff);
+            }
+            return Integer.compare(id, other.id);
+        }
+    }
+}
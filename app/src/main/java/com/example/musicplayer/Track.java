@@ -0,0 +1,77 @@
+package com.example.musicplayer;
+
+import android.net.Uri;
+
+// 曲库中的一首歌曲（不可变）
+public class Track {
+    private final int id;
+    private final String fileName;
+    private final String displayName;
+    private final Uri uri;
+    private final long modified;
+    private final String key;
+    private final long stableId;
+
+    public Track(int id, String fileName, String displayName, Uri uri) {
+        this(id, fileName, displayName, uri, 0);
+    }
+
+    public Track(int id, String fileName, String displayName, Uri uri, long modified) {
+        this.id = id;
+        this.fileName = fileName;
+        this.displayName = displayName;
+        this.uri = uri;
+        this.modified = modified;
+        this.key = uri != null ? uri.toString() : fileName;
+        this.stableId = hash64(key);
+    }
+
+    // 64 位 FNV-1a，去掉符号位后不会和 RecyclerView.NO_ID（-1）冲突
+    private static long hash64(String s) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash & Long.MAX_VALUE;
+    }
+
+    // 复制一份并换成新的曲库下标
+    public Track withId(int id) {
+        return new Track(id, fileName, displayName, uri, modified);
+    }
+
+    // 曲库下标：曲库增删后会变，不能当作歌曲的身份
+    public int getId() {
+        return id;
+    }
+
+    // 文件名，例如 "xxx.mp3"
+    public String getFileName() {
+        return fileName;
+    }
+
+    // 去掉扩展名后的歌曲名
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public Uri getUri() {
+        return uri;
+    }
+
+    // 歌曲的身份：URI（没有 URI 时为文件名），曲库增删后不变
+    public String getKey() {
+        return key;
+    }
+
+    // 由 getKey() 算出的稳定 ID，非负
+    public long getStableId() {
+        return stableId;
+    }
+
+    // 文件修改时间（MediaStore 的 DATE_MODIFIED，秒），未知时为 0
+    public long getModified() {
+        return modified;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.musicplayer;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// TrackCatalog.java
+// 持久化的歌曲元数据目录（SQLite），以 URI 为主键，标题和歌手建索引
+public class TrackCatalog extends SQLiteOpenHelper {
+    private static final String DB_NAME = "catalog.db";
+    private static final int DB_VERSION = 2; // 2: 主键由文件名改为 URI
+    private static final String TABLE = "tracks";
+
+    private static final String COL_URI = "uri";
+    private static final String COL_FILE_NAME = "file_name";
+    private static final String COL_TITLE = "title";
+    private static final String COL_ARTIST = "artist";
+    private static final String COL_ALBUM = "album";
+    private static final String COL_DURATION = "duration";
+    private static final String COL_BITRATE = "bitrate";
+    private static final String COL_SIZE = "size";
+    private static final String COL_MODIFIED = "modified";
+    private static final String COL_HASH = "content_hash";
+
+    private static volatile TrackCatalog instance;
+
+    public static TrackCatalog getInstance(Context context) {
+        TrackCatalog catalog = instance;
+        if (catalog == null) {
+            synchronized (TrackCatalog.class) {
+                catalog = instance;
+                if (catalog == null) {
+                    catalog = new TrackCatalog(context.getApplicationContext());
+                    instance = catalog;
+                }
+            }
+        }
+        return catalog;
+    }
+
+    private TrackCatalog(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_URI + " TEXT PRIMARY KEY, "
+                + COL_FILE_NAME + " TEXT NOT NULL, "
+                + COL_TITLE + " TEXT, "
+                + COL_ARTIST + " TEXT, "
+                + COL_ALBUM + " TEXT, "
+                + COL_DURATION + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_BITRATE + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_SIZE + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_MODIFIED + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_HASH + " TEXT)");
+        db.execSQL("CREATE INDEX idx_tracks_title ON " + TABLE + "(" + COL_TITLE + ")");
+        db.execSQL("CREATE INDEX idx_tracks_artist ON " + TABLE + "(" + COL_ARTIST + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // 目录可以随时重新扫描得到，升级时直接重建
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        onCreate(db);
+    }
+
+    // 读取全部条目：URI -> 元数据（在后台线程调用）
+    public Map<String, TrackInfo> loadAll() {
+        Map<String, TrackInfo> result = new HashMap<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE, null, null, null, null, null, null)) {
+            int uri = cursor.getColumnIndexOrThrow(COL_URI);
+            int fileName = cursor.getColumnIndexOrThrow(COL_FILE_NAME);
+            int title = cursor.getColumnIndexOrThrow(COL_TITLE);
+            int artist = cursor.getColumnIndexOrThrow(COL_ARTIST);
+            int album = cursor.getColumnIndexOrThrow(COL_ALBUM);
+            int duration = cursor.getColumnIndexOrThrow(COL_DURATION);
+            int bitrate = cursor.getColumnIndexOrThrow(COL_BITRATE);
+            int size = cursor.getColumnIndexOrThrow(COL_SIZE);
+            int modified = cursor.getColumnIndexOrThrow(COL_MODIFIED);
+            int hash = cursor.getColumnIndexOrThrow(COL_HASH);
+            while (cursor.moveToNext()) {
+                TrackInfo info = new TrackInfo(cursor.getString(uri), cursor.getString(fileName),
+                        cursor.getString(title), cursor.getString(artist), cursor.getString(album),
+                        cursor.getLong(duration), cursor.getInt(bitrate), cursor.getLong(size),
+                        cursor.getLong(modified), cursor.getString(hash));
+                result.put(info.getUri(), info);
+            }
+        }
+        return result;
+    }
+
+    // 在一个事务里写入多条，避免每条一次提交
+    public void putAll(Collection<TrackInfo> infos) {
+        if (infos.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (TrackInfo info : infos) {
+                values.clear();
+                values.put(COL_URI, info.getUri());
+                values.put(COL_FILE_NAME, info.getFileName());
+                values.put(COL_TITLE, info.getTitle());
+                values.put(COL_ARTIST, info.getArtist());
+                values.put(COL_ALBUM, info.getAlbum());
+                values.put(COL_DURATION, info.getDuration());
+                values.put(COL_BITRATE, info.getBitrate());
+                values.put(COL_SIZE, info.getSize());
+                values.put(COL_MODIFIED, info.getModified());
+                values.put(COL_HASH, info.getContentHash());
+                db.insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // 删除已不在曲库中的条目
+    public void removeAll(Set<String> uris) {
+        if (uris.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (String uri : uris) {
+                db.delete(TABLE, COL_URI + " = ?", new String[]{uri});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
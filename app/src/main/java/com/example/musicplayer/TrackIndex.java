@@ -0,0 +1,62 @@
+package com.example.musicplayer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// TrackIndex.java
+// 曲库的纯 Java 索引（不可变）：歌曲列表、文件名/歌曲名列表、文件名 -> 下标和内容指纹，
+// 不依赖 Android，MediaLibrary 在它外面负责扫描 assets 和全局实例
+final class TrackIndex {
+    private final List<Track> tracks;
+    private final List<String> fileNames;
+    private final List<String> displayNames;
+    private final Map<String, Integer> indexByFileName;
+    private final long fingerprint;
+
+    TrackIndex(List<Track> tracks) {
+        List<String> files = new ArrayList<>(tracks.size());
+        List<String> names = new ArrayList<>(tracks.size());
+        Map<String, Integer> byFileName = new HashMap<>(tracks.size() * 2);
+        long hash = 1125899906842597L;
+        for (int i = 0; i < tracks.size(); i++) {
+            Track track = tracks.get(i);
+            files.add(track.getFileName());
+            names.add(track.getDisplayName());
+            // 文件名重复时保留第一首
+            if (!byFileName.containsKey(track.getFileName())) {
+                byFileName.put(track.getFileName(), i);
+            }
+            hash = 31 * hash + track.getFileName().hashCode();
+        }
+        this.fingerprint = hash;
+        this.tracks = Collections.unmodifiableList(tracks);
+        this.fileNames = Collections.unmodifiableList(files);
+        this.displayNames = Collections.unmodifiableList(names);
+        this.indexByFileName = byFileName;
+    }
+
+    List<Track> getTracks() {
+        return tracks;
+    }
+
+    List<String> getFileNames() {
+        return fileNames;
+    }
+
+    List<String> getDisplayNames() {
+        return displayNames;
+    }
+
+    // 按文件名查下标，不在曲库中时返回 -1
+    int indexOf(String fileName) {
+        Integer index = indexByFileName.get(fileName);
+        return index != null ? index : -1;
+    }
+
+    long getFingerprint() {
+        return fingerprint;
+    }
+}
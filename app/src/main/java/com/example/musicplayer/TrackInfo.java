@@ -0,0 +1,82 @@
+package com.example.musicplayer;
+
+// TrackInfo.java
+// 从音频文件中解析出的元数据（不可变），由 CatalogScanner 生成并保存在 TrackCatalog 中
+public class TrackInfo {
+    private final String uri;
+    private final String fileName;
+    private final String title;
+    private final String artist;
+    private final String album;
+    private final long duration;
+    private final int bitrate;
+    private final long size;
+    private final long modified;
+    private final String contentHash;
+
+    public TrackInfo(String uri, String fileName, String title, String artist, String album,
+                     long duration, int bitrate, long size, long modified, String contentHash) {
+        this.uri = uri;
+        this.fileName = fileName;
+        this.title = title;
+        this.artist = artist;
+        this.album = album;
+        this.duration = duration;
+        this.bitrate = bitrate;
+        this.size = size;
+        this.modified = modified;
+        this.contentHash = contentHash;
+    }
+
+    // 只更新修改时间（文件内容没变）
+    public TrackInfo withModified(long modified) {
+        return new TrackInfo(uri, fileName, title, artist, album, duration, bitrate, size, modified,
+                contentHash);
+    }
+
+    // 歌曲的 URI，目录以它为主键（文件名在设备曲库中可能重复）
+    public String getUri() {
+        return uri;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    // 标签中的标题，没有时为 null
+    public String getTitle() {
+        return title;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    public String getAlbum() {
+        return album;
+    }
+
+    // 时长（毫秒），未知时为 0
+    public long getDuration() {
+        return duration;
+    }
+
+    // 码率（bit/s），未知时为 0
+    public int getBitrate() {
+        return bitrate;
+    }
+
+    // 文件大小（字节）
+    public long getSize() {
+        return size;
+    }
+
+    // 扫描时记录的修改时间，用于增量扫描
+    public long getModified() {
+        return modified;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+}
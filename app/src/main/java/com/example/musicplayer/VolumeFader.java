@@ -0,0 +1,57 @@
+package com.example.musicplayer;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.exoplayer2.ExoPlayer;
+
+// VolumeFader.java
+// 在主线程上逐步调整播放器音量，用于切歌时的淡入淡出
+public class VolumeFader {
+    private static final long STEP_MS = 25;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ExoPlayer player;
+    private Runnable fadeRunnable;
+
+    public VolumeFader(ExoPlayer player) {
+        this.player = player;
+    }
+
+    // 在 durationMs 内把音量调到 target，完成后执行 onDone（可以为 null）
+    public void fadeTo(float target, long durationMs, Runnable onDone) {
+        cancel();
+        final float start = player.getVolume();
+        final int steps = (int) Math.max(1, durationMs / STEP_MS);
+        fadeRunnable = new Runnable() {
+            int step = 0;
+
+            @Override
+            public void run() {
+                step++;
+                // 最后一步直接设成 target，避免浮点误差停在目标值附近
+                player.setVolume(step < steps ? start + (target - start) * step / steps : target);
+                if (step < steps) {
+                    handler.postDelayed(this, STEP_MS);
+                } else {
+                    fadeRunnable = null;
+                    if (onDone != null) {
+                        onDone.run();
+                    }
+                }
+            }
+        };
+        handler.post(fadeRunnable);
+    }
+
+    public boolean isFading() {
+        return fadeRunnable != null;
+    }
+
+    public void cancel() {
+        if (fadeRunnable != null) {
+            handler.removeCallbacks(fadeRunnable);
+            fadeRunnable = null;
+        }
+    }
+}
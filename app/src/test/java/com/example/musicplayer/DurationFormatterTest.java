@@ -0,0 +1,102 @@
+package com.example.musicplayer;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class DurationFormatterTest {
+
+    private static String text(DurationFormatter formatter, long ms) {
+        formatter.reset();
+        formatter.update(ms);
+        return new String(formatter.getBuffer(), 0, formatter.length());
+    }
+
+    @Test
+    public void formatsMinutesAndHours() {
+        DurationFormatter formatter = new DurationFormatter();
+        assertEquals("00:00", text(formatter, 0));
+        assertEquals("00:00", text(formatter, -500));
+        assertEquals("00:00", text(formatter, 999));
+        assertEquals("00:59", text(formatter, 59_999));
+        assertEquals("01:01", text(formatter, 61_000));
+        assertEquals("59:59", text(formatter, 3_599_000));
+        assertEquals("1:00:00", text(formatter, 3_600_000));
+        assertEquals("10:05:09", text(formatter, 36_309_000));
+    }
+
+    @Test
+    public void updateSkipsUnchangedSecond() {
+        DurationFormatter formatter = new DurationFormatter();
+        assertTrue(formatter.update(1_000));
+        assertFalse(formatter.update(1_999));
+        assertTrue(formatter.update(2_000));
+        formatter.reset();
+        assertTrue(formatter.update(2_000));
+    }
+
+    @Test
+    public void appendToWritesCurrentText() {
+        DurationFormatter formatter = new DurationFormatter();
+        formatter.update(125_000);
+        StringBuilder sb = new StringBuilder("pos ");
+        formatter.appendTo(sb);
+        assertEquals("pos 02:05", sb.toString());
+    }
+
+    // 原来 MainActivity.format(long) 的做法：每次调用都新建一个 SimpleDateFormat
+    private static String simpleDateFormat(long position) {
+        SimpleDateFormat sdf = new SimpleDateFormat("mm:ss");
+        return sdf.format(position);
+    }
+
+    // 每秒刷新一次进度的场景：update 不应分配对象，对照原来 SimpleDateFormat 路径的分配量和耗时
+    @Test
+    public void updateDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        long thread = Thread.currentThread().getId();
+        int iterations = 200_000;
+
+        int oldIterations = 20_000; // 旧路径慢得多，少跑一些，按每次调用比较
+
+        DurationFormatter formatter = new DurationFormatter();
+        for (int i = 0; i < iterations; i++) {
+            formatter.update(i * 1000L); // 预热
+        }
+        formatter.reset();
+        long before = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            formatter.update(i * 1000L);
+        }
+        long formatterNs = System.nanoTime() - start;
+        long formatterBytes = threads.getThreadAllocatedBytes(thread) - before;
+
+        int sink = 0;
+        for (int i = 0; i < oldIterations; i++) {
+            sink += simpleDateFormat(i * 1000L).length(); // 预热
+        }
+        before = threads.getThreadAllocatedBytes(thread);
+        start = System.nanoTime();
+        for (int i = 0; i < oldIterations; i++) {
+            sink += simpleDateFormat(i * 1000L).length();
+        }
+        long oldNs = System.nanoTime() - start;
+        long oldBytes = threads.getThreadAllocatedBytes(thread) - before;
+
+        System.out.println("DurationFormatter: " + formatterBytes / iterations + " bytes, "
+                + formatterNs / iterations + "ns per update; SimpleDateFormat: " + oldBytes / oldIterations
+                + " bytes, " + oldNs / oldIterations + "ns per call (" + sink + " chars)");
+        assertTrue("update allocated " + formatterBytes + " bytes", formatterBytes < 64 * 1024);
+        assertTrue(oldBytes / oldIterations > 0);
+    }
+}
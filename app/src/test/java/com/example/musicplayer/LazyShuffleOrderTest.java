@@ -0,0 +1,81 @@
+package com.example.musicplayer;
+
+import com.google.android.exoplayer2.C;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LazyShuffleOrderTest {
+
+    // 从 start 开始按 getNextIndex 走完整个顺序
+    private static List<Integer> walk(LazyShuffleOrder order, int start) {
+        List<Integer> result = new ArrayList<>();
+        for (int index = start; index != C.INDEX_UNSET; index = order.getNextIndex(index)) {
+            result.add(index);
+        }
+        return result;
+    }
+
+    @Test
+    public void visitsEveryIndexOnce() {
+        for (int length : new int[]{1, 2, 3, 10, 1000}) {
+            LazyShuffleOrder order = new LazyShuffleOrder(length, 42);
+            List<Integer> walked = walk(order, order.getFirstIndex());
+            assertEquals(length, walked.size());
+            assertEquals(length, new HashSet<>(walked).size());
+            assertEquals((int) walked.get(length - 1), order.getLastIndex());
+        }
+    }
+
+    @Test
+    public void previousIsInverseOfNext() {
+        LazyShuffleOrder order = new LazyShuffleOrder(500, 7);
+        List<Integer> walked = walk(order, order.getFirstIndex());
+        assertEquals(C.INDEX_UNSET, order.getPreviousIndex(walked.get(0)));
+        for (int i = 1; i < walked.size(); i++) {
+            assertEquals((int) walked.get(i - 1), order.getPreviousIndex(walked.get(i)));
+        }
+    }
+
+    // PlayQueue 开启随机播放时当前歌曲成为随机顺序的第一首
+    @Test
+    public void firstQueriedIndexStartsTheOrder() {
+        LazyShuffleOrder order = new LazyShuffleOrder(1000, 3);
+        int current = 617;
+        assertEquals(C.INDEX_UNSET, order.getPreviousIndex(current));
+        List<Integer> walked = walk(order, current);
+        assertEquals(1000, walked.size());
+        assertEquals(1000, new HashSet<>(walked).size());
+        assertEquals(current, order.getFirstIndex());
+    }
+
+    @Test
+    public void sameSeedGivesSameOrder() {
+        List<Integer> a = walk(new LazyShuffleOrder(200, 99), 0);
+        List<Integer> b = walk(new LazyShuffleOrder(200, 99), 0);
+        assertEquals(a, b);
+    }
+
+    // 在 5 万首的曲库上按 PlayQueue 的方式装一个窗口，只应生成窗口内的位置
+    @Test
+    public void windowAroundCurrentStaysLazy() {
+        LazyShuffleOrder order = new LazyShuffleOrder(50_000, 1);
+        int current = 12_345;
+        assertEquals(C.INDEX_UNSET, order.getPreviousIndex(current));
+        Set<Integer> window = new HashSet<>();
+        window.add(current);
+        for (int i = 0, last = current; i < PlayQueue.PAGE_SIZE; i++) {
+            last = order.getNextIndex(last);
+            window.add(last);
+        }
+        assertEquals(PlayQueue.PAGE_SIZE + 1, window.size());
+        assertTrue(order.getGeneratedCount() <= PlayQueue.PAGE_SIZE + 1);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.musicplayer;
+
+import android.content.ContentProvider;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Looper;
+import android.provider.MediaStore;
+
+import androidx.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+// 用假的 MediaStore provider 和 2 万行合成数据验证分页加载和增量更新
+@RunWith(RobolectricTestRunner.class)
+public class MediaStoreLibraryTest {
+    private static final int ROWS = 20_000;
+    private static final Uri COLLECTION = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
+    private static final long TIMEOUT_MS = 10_000;
+
+    private FakeAudioProvider provider;
+    private MediaStoreLibrary library;
+    private volatile List<Track> published;
+
+    // 按 _id 排序的内存表；记录每次查询的方式和返回行数
+    public static class FakeAudioProvider extends ContentProvider {
+        final TreeMap<Long, Object[]> rows = new TreeMap<>(); // _id -> {display_name, title, date_modified}
+        final AtomicInteger pageQueries = new AtomicInteger();
+        final AtomicInteger idQueries = new AtomicInteger();
+        volatile int maxRowsPerQuery = 0;
+
+        void put(long id, String title, long modified) {
+            synchronized (rows) {
+                rows.put(id, new Object[]{title + ".mp3", title, modified});
+            }
+        }
+
+        void remove(long id) {
+            synchronized (rows) {
+                rows.remove(id);
+            }
+        }
+
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public Cursor query(Uri uri, @Nullable String[] projection, @Nullable Bundle queryArgs,
+                            @Nullable CancellationSignal cancellationSignal) {
+            String selection = queryArgs.getString(ContentResolver.QUERY_ARG_SQL_SELECTION);
+            String[] args = queryArgs.getStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS);
+            MatrixCursor cursor = new MatrixCursor(projection);
+            synchronized (rows) {
+                if (selection.contains(" IN (")) {
+                    // 增量更新：按 _id 列表查询
+                    idQueries.incrementAndGet();
+                    for (String arg : args) {
+                        long id = Long.parseLong(arg);
+                        Object[] row = rows.get(id);
+                        if (row != null) {
+                            addRow(cursor, projection, id, row);
+                        }
+                    }
+                } else {
+                    // 分页：_id > ? ORDER BY _id LIMIT n
+                    pageQueries.incrementAndGet();
+                    long lastId = Long.parseLong(args[0]);
+                    int limit = queryArgs.getInt(ContentResolver.QUERY_ARG_LIMIT, Integer.MAX_VALUE);
+                    for (Map.Entry<Long, Object[]> entry : rows.tailMap(lastId, false).entrySet()) {
+                        if (cursor.getCount() >= limit) {
+                            break;
+                        }
+                        addRow(cursor, projection, entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            maxRowsPerQuery = Math.max(maxRowsPerQuery, cursor.getCount());
+            return cursor;
+        }
+
+        private static void addRow(MatrixCursor cursor, String[] projection, long id, Object[] row) {
+            MatrixCursor.RowBuilder builder = cursor.newRow();
+            for (String column : projection) {
+                switch (column) {
+                    case MediaStore.Audio.Media._ID:
+                        builder.add(id);
+                        break;
+                    case MediaStore.Audio.Media.DISPLAY_NAME:
+                        builder.add(row[0]);
+                        break;
+                    case MediaStore.Audio.Media.TITLE:
+                        builder.add(row[1]);
+                        break;
+                    case MediaStore.Audio.Media.DATE_MODIFIED:
+                        builder.add(row[2]);
+                        break;
+                    default:
+                        builder.add(null);
+                }
+            }
+        }
+
+        @Override
+        public Cursor query(Uri uri, @Nullable String[] projection, @Nullable String selection,
+                            @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+            Bundle args = ContentResolver.createSqlQueryBundle(selection, selectionArgs, sortOrder);
+            return query(uri, projection, args, null);
+        }
+
+        @Nullable
+        @Override
+        public String getType(Uri uri) {
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public Uri insert(Uri uri, @Nullable ContentValues values) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int delete(Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int update(Uri uri, @Nullable ContentValues values, @Nullable String selection,
+                          @Nullable String[] selectionArgs) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        provider = Robolectric.setupContentProvider(FakeAudioProvider.class, MediaStore.AUTHORITY);
+        for (long id = 1; id <= ROWS; id++) {
+            provider.put(id, "track" + id, id);
+        }
+        library = new MediaStoreLibrary(RuntimeEnvironment.getApplication());
+    }
+
+    @After
+    public void tearDown() {
+        library.stop();
+    }
+
+    // 后台线程查询完成后把结果 post 到主线程，这里推进主线程 Looper 直到收到新的一次回调
+    private List<Track> awaitPublish() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (published == null && System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(5);
+        }
+        List<Track> result = published;
+        assertNotNull("no publish within " + TIMEOUT_MS + "ms", result);
+        published = null;
+        return result;
+    }
+
+    private void notifyChange(long id) {
+        RuntimeEnvironment.getApplication().getContentResolver()
+                .notifyChange(ContentUris.withAppendedId(COLLECTION, id), null);
+    }
+
+    @Test
+    public void loadsAllRowsInPages() throws Exception {
+        long start = System.nanoTime();
+        library.start(tracks -> published = tracks);
+        List<Track> tracks = awaitPublish();
+        long loadMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(ROWS, tracks.size());
+        assertEquals("track1", tracks.get(0).getDisplayName());
+        assertEquals("track" + ROWS + ".mp3", tracks.get(ROWS - 1).getFileName());
+        assertEquals(ContentUris.withAppendedId(COLLECTION, ROWS), tracks.get(ROWS - 1).getUri());
+        // 每页不超过 PAGE_SIZE 行；整页结束后再查一次空页
+        assertTrue(provider.maxRowsPerQuery <= MediaStoreLibrary.PAGE_SIZE);
+        assertEquals(ROWS / MediaStoreLibrary.PAGE_SIZE + 1, provider.pageQueries.get());
+        assertEquals(0, provider.idQueries.get());
+        System.out.println("MediaStoreLibrary " + ROWS + " rows: " + loadMs + "ms, "
+                + provider.pageQueries.get() + " pages");
+    }
+
+    // 变化通知只重新查询涉及的条目：新增、修改、删除各一条，不再整表翻页
+    @Test
+    public void appliesDeltasWithoutReloading() throws Exception {
+        library.start(tracks -> published = tracks);
+        awaitPublish();
+        int pages = provider.pageQueries.get();
+
+        provider.put(ROWS + 1, "新歌", 1);
+        provider.put(5, "改名", 2);
+        provider.remove(10);
+        notifyChange(ROWS + 1);
+        notifyChange(5);
+        notifyChange(10);
+        // 先分发通知，再让合并等待的 500ms 过去
+        shadowOf(Looper.getMainLooper()).idle();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(600));
+        List<Track> tracks = awaitPublish();
+
+        assertEquals(pages, provider.pageQueries.get());
+        assertEquals(1, provider.idQueries.get());
+        assertEquals(ROWS, tracks.size());
+        Set<String> names = new HashSet<>();
+        for (Track track : tracks) {
+            names.add(track.getDisplayName());
+        }
+        assertTrue(names.contains("新歌"));
+        assertTrue(names.contains("改名"));
+        assertFalse(names.contains("track5"));
+        assertFalse(names.contains("track10"));
+        assertEquals("新歌", tracks.get(tracks.size() - 1).getDisplayName());
+    }
+
+    // 没有具体条目的通知（整个集合变化）时整体重新翻页
+    @Test
+    public void collectionChangeReloads() throws Exception {
+        library.start(tracks -> published = tracks);
+        awaitPublish();
+        int pages = provider.pageQueries.get();
+
+        provider.remove(1);
+        RuntimeEnvironment.getApplication().getContentResolver().notifyChange(COLLECTION, null);
+        shadowOf(Looper.getMainLooper()).idle();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(600));
+        List<Track> tracks = awaitPublish();
+
+        assertEquals(ROWS - 1, tracks.size());
+        assertEquals("track2", tracks.get(0).getDisplayName());
+        assertTrue(provider.pageQueries.get() > pages);
+    }
+}
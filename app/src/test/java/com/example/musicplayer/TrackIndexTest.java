@@ -0,0 +1,111 @@
+package com.example.musicplayer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class TrackIndexTest {
+
+    private static List<Track> tracks(String... fileNames) {
+        List<Track> tracks = new ArrayList<>(fileNames.length);
+        for (int i = 0; i < fileNames.length; i++) {
+            String name = fileNames[i];
+            tracks.add(new Track(i, name, name.substring(0, name.lastIndexOf('.')), null));
+        }
+        return tracks;
+    }
+
+    @Test
+    public void listsNamesInLibraryOrder() {
+        TrackIndex index = new TrackIndex(tracks("b.mp3", "a.flac", "c.m4a"));
+        assertEquals(Arrays.asList("b.mp3", "a.flac", "c.m4a"), index.getFileNames());
+        assertEquals(Arrays.asList("b", "a", "c"), index.getDisplayNames());
+        assertEquals(3, index.getTracks().size());
+    }
+
+    @Test
+    public void indexOfFindsFirstMatch() {
+        TrackIndex index = new TrackIndex(tracks("a.mp3", "b.mp3", "a.mp3"));
+        assertEquals(0, index.indexOf("a.mp3"));
+        assertEquals(1, index.indexOf("b.mp3"));
+        assertEquals(-1, index.indexOf("c.mp3"));
+    }
+
+    @Test
+    public void fingerprintFollowsFileList() {
+        long a = new TrackIndex(tracks("a.mp3", "b.mp3")).getFingerprint();
+        assertEquals(a, new TrackIndex(tracks("a.mp3", "b.mp3")).getFingerprint());
+        assertNotEquals(a, new TrackIndex(tracks("b.mp3", "a.mp3")).getFingerprint());
+        assertNotEquals(a, new TrackIndex(tracks("a.mp3")).getFingerprint());
+    }
+
+    // 旧做法：每次都重新列出 assets/music（AssetManager.list 每次返回新数组），再逐个去扩展名
+    private static List<String> scanDisplayNames(String[] assetList) {
+        String[] files = assetList.clone();
+        List<String> names = new ArrayList<>(files.length);
+        for (String file : files) {
+            names.add(file.substring(0, file.lastIndexOf(".")));
+        }
+        return names;
+    }
+
+    // 旧做法：每次按文件名查找都重新列出并逐个比较
+    private static int scanIndexOf(String[] assetList, String fileName) {
+        String[] files = assetList.clone();
+        for (int i = 0; i < files.length; i++) {
+            if (files[i].equals(fileName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // 3000 首：每轮对话读一次歌曲列表、按文件名查 5 首，对照每次调用都重新扫描的旧做法
+    @Test
+    public void indexVersusScanPerCall() {
+        int size = 3000;
+        int turns = 2000;
+        String[] assetList = new String[size];
+        for (int i = 0; i < size; i++) {
+            assetList[i] = "歌曲 " + i + (i % 3 == 0 ? ".flac" : ".mp3");
+        }
+        Random random = new Random(1);
+        String[] lookups = new String[turns * 5];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = assetList[random.nextInt(size)];
+        }
+
+        long start = System.nanoTime();
+        int scanSink = 0;
+        for (int turn = 0; turn < turns; turn++) {
+            scanSink += scanDisplayNames(assetList).size();
+            for (int j = 0; j < 5; j++) {
+                scanSink += scanIndexOf(assetList, lookups[turn * 5 + j]);
+            }
+        }
+        long scanUs = (System.nanoTime() - start) / 1000;
+
+        start = System.nanoTime();
+        TrackIndex index = new TrackIndex(tracks(assetList));
+        long buildUs = (System.nanoTime() - start) / 1000;
+        int indexSink = 0;
+        for (int turn = 0; turn < turns; turn++) {
+            indexSink += index.getDisplayNames().size();
+            for (int j = 0; j < 5; j++) {
+                indexSink += index.indexOf(lookups[turn * 5 + j]);
+            }
+        }
+        long indexUs = (System.nanoTime() - start) / 1000;
+
+        assertEquals(scanSink, indexSink);
+        assertEquals(scanDisplayNames(assetList), index.getDisplayNames());
+        System.out.println("TrackIndex " + size + " tracks, " + turns + " turns: scan per call " + scanUs
+                + "us, index " + indexUs + "us (build " + buildUs + "us)");
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.musicplayer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TrackTest {
+
+    // 曲库重新编号后身份不变
+    @Test
+    public void stableIdSurvivesRenumbering() {
+        Track track = new Track(3, "晴天.mp3", "晴天", null);
+        Track moved = track.withId(42);
+        assertEquals(42, moved.getId());
+        assertEquals(track.getKey(), moved.getKey());
+        assertEquals(track.getStableId(), moved.getStableId());
+    }
+
+    @Test
+    public void stableIdDependsOnKeyOnly() {
+        Track a = new Track(0, "a.mp3", "a", null);
+        Track b = new Track(0, "b.mp3", "b", null);
+        assertNotEquals(a.getStableId(), b.getStableId());
+        assertEquals(a.getStableId(), new Track(7, "a.mp3", "另一个名字", null).getStableId());
+    }
+
+    // 不会是 RecyclerView.NO_ID（-1）或其他负数
+    @Test
+    public void stableIdIsNonNegative() {
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(new Track(i, "track" + i + ".mp3", "track" + i, null).getStableId() >= 0);
+        }
+    }
+}
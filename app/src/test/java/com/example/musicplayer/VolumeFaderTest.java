@@ -0,0 +1,147 @@
+package com.example.musicplayer;
+
+import android.os.Looper;
+
+import com.google.android.exoplayer2.ExoPlayer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+// VolumeFader 在主线程 Handler 上分步调音量，用 Robolectric 的主线程 Looper 推进时间
+@RunWith(RobolectricTestRunner.class)
+public class VolumeFaderTest {
+
+    // 只记录音量的播放器，其他方法都不应被调用
+    private static class VolumeRecorder {
+        final List<Float> volumes = new ArrayList<>();
+        float volume;
+
+        VolumeRecorder(float volume) {
+            this.volume = volume;
+        }
+
+        ExoPlayer player() {
+            return (ExoPlayer) Proxy.newProxyInstance(ExoPlayer.class.getClassLoader(),
+                    new Class<?>[]{ExoPlayer.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getVolume":
+                                return volume;
+                            case "setVolume":
+                                volume = (Float) args[0];
+                                volumes.add(volume);
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    private static void advance(long ms) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(ms));
+    }
+
+    @Test
+    public void fadeOutIsLinearAndEndsAtTarget() {
+        VolumeRecorder recorder = new VolumeRecorder(1f);
+        VolumeFader fader = new VolumeFader(recorder.player());
+        AtomicInteger done = new AtomicInteger();
+
+        fader.fadeTo(0f, 250, done::incrementAndGet);
+        assertTrue(fader.isFading());
+        advance(1000);
+
+        // 250ms / 25ms = 10 步，每步降 0.1
+        assertEquals(10, recorder.volumes.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1f - 0.1f * (i + 1), recorder.volumes.get(i), 1e-5f);
+        }
+        assertEquals(0f, recorder.volume, 0f);
+        assertEquals(1, done.get());
+        assertFalse(fader.isFading());
+    }
+
+    @Test
+    public void fadeInReachesExactTarget() {
+        VolumeRecorder recorder = new VolumeRecorder(0.3f);
+        VolumeFader fader = new VolumeFader(recorder.player());
+
+        fader.fadeTo(0.7f, 175, null);
+        advance(1000);
+
+        assertEquals(7, recorder.volumes.size());
+        float previous = 0.3f;
+        for (float volume : recorder.volumes) {
+            assertTrue(volume > previous);
+            previous = volume;
+        }
+        assertEquals(0.7f, recorder.volume, 0f);
+    }
+
+    // 时长不足一步时一次调到目标值
+    @Test
+    public void shortFadeJumpsToTarget() {
+        VolumeRecorder recorder = new VolumeRecorder(1f);
+        VolumeFader fader = new VolumeFader(recorder.player());
+        AtomicInteger done = new AtomicInteger();
+
+        fader.fadeTo(0f, 0, done::incrementAndGet);
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertEquals(1, recorder.volumes.size());
+        assertEquals(0f, recorder.volume, 0f);
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    public void cancelStopsFadeWithoutCallback() {
+        VolumeRecorder recorder = new VolumeRecorder(1f);
+        VolumeFader fader = new VolumeFader(recorder.player());
+        AtomicInteger done = new AtomicInteger();
+
+        fader.fadeTo(0f, 500, done::incrementAndGet);
+        advance(100);
+        int steps = recorder.volumes.size();
+        assertTrue(steps > 0 && steps < 20);
+
+        fader.cancel();
+        assertFalse(fader.isFading());
+        advance(1000);
+        assertEquals(steps, recorder.volumes.size());
+        assertEquals(0, done.get());
+    }
+
+    // 新的淡变从当前音量开始，并取消上一次的回调
+    @Test
+    public void newFadeReplacesRunningOne() {
+        VolumeRecorder recorder = new VolumeRecorder(1f);
+        VolumeFader fader = new VolumeFader(recorder.player());
+        AtomicInteger firstDone = new AtomicInteger();
+        AtomicInteger secondDone = new AtomicInteger();
+
+        fader.fadeTo(0f, 500, firstDone::incrementAndGet);
+        advance(100);
+        float reached = recorder.volume;
+        assertTrue(reached < 1f && reached > 0f);
+
+        fader.fadeTo(1f, 100, secondDone::incrementAndGet);
+        advance(1000);
+
+        assertTrue(recorder.volumes.get(recorder.volumes.indexOf(reached) + 1) > reached);
+        assertEquals(1f, recorder.volume, 0f);
+        assertEquals(0, firstDone.get());
+        assertEquals(1, secondDone.get());
+    }
+}
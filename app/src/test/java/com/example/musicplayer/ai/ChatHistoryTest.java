@@ -0,0 +1,86 @@
+package com.example.musicplayer.ai;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// ChatMessage 序列化用到 org.json，需要 Robolectric 提供实现
+@RunWith(RobolectricTestRunner.class)
+public class ChatHistoryTest {
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static void assertStartsWithUser(ChatHistory history) {
+        List<ChatMessage> messages = history.getMessages();
+        assertTrue(messages.isEmpty() || "user".equals(messages.get(0).getRole()));
+    }
+
+    // 一轮就超出预算：保留这完整的一轮，不留下孤立的回复
+    @Test
+    public void oversizedTurnIsKeptWhole() throws Exception {
+        ChatHistory history = new ChatHistory(100);
+        history.add(new ChatMessage("user", repeat('a', 200)));
+        history.add(new ChatMessage("assistant", "好的"));
+        assertEquals(2, history.size());
+        assertStartsWithUser(history);
+
+        // 新的一轮开始后，超出预算的上一轮整轮丢弃
+        history.add(new ChatMessage("user", "下一个问题"));
+        assertEquals(1, history.size());
+        assertEquals("下一个问题", history.getMessages().get(0).getContent());
+        assertEquals(2, history.getEvictedMessages());
+    }
+
+    @Test
+    public void evictsWholeTurns() throws Exception {
+        ChatHistory history = new ChatHistory(300);
+        for (int i = 0; i < 10; i++) {
+            history.add(new ChatMessage("user", "问题 " + i + repeat('q', 40)));
+            history.add(new ChatMessage("assistant", "回答 " + i + repeat('r', 40)));
+            history.add(new ChatMessage("assistant", "补充 " + i));
+            assertStartsWithUser(history);
+            assertTrue(history.getTotalChars() <= history.getCharBudget());
+            assertEquals(0, history.size() % 3);
+        }
+        assertEquals(30, history.size() + history.getEvictedMessages());
+    }
+
+    // 开头不是用户消息时直接丢掉
+    @Test
+    public void leadingReplyIsDropped() throws Exception {
+        ChatHistory history = new ChatHistory();
+        history.add(new ChatMessage("assistant", "没有问题的回答"));
+        assertEquals(0, history.size());
+        assertEquals("", history.getSerialized());
+    }
+
+    // 淘汰后重建的序列化结果和剩下的消息一致
+    @Test
+    public void serializedMatchesMessagesAfterEviction() throws Exception {
+        ChatHistory history = new ChatHistory(150);
+        for (int i = 0; i < 5; i++) {
+            history.add(new ChatMessage("user", "问题 " + i + repeat('x', 30)));
+            history.add(new ChatMessage("assistant", "回答 " + i));
+        }
+        StringBuilder expected = new StringBuilder();
+        for (ChatMessage message : history.getMessages()) {
+            if (expected.length() > 0) {
+                expected.append(',');
+            }
+            expected.append(message.toJson());
+        }
+        assertEquals(expected.toString(), history.getSerialized());
+        assertEquals(expected.length() - (history.size() - 1), history.getTotalChars());
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.musicplayer.ai;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    // 手动推进的时钟
+    private static class ManualClock implements CircuitBreaker.Clock {
+        long now = 0;
+
+        @Override
+        public long now() {
+            return now;
+        }
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        ManualClock clock = new ManualClock();
+        CircuitBreaker breaker = new CircuitBreaker(3, 10_000, clock);
+        for (int i = 0; i < 2; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.recordFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getShortCircuitCount());
+        assertEquals(1, breaker.getOpenCount());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 10_000, new ManualClock());
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    // 断开时间过后只放行一个试探请求：成功则闭合，失败则重新断开
+    @Test
+    public void halfOpenAllowsSingleTrial() {
+        ManualClock clock = new ManualClock();
+        CircuitBreaker breaker = new CircuitBreaker(1, 10_000, clock);
+        breaker.recordFailure();
+        clock.now = 9_999;
+        assertFalse(breaker.allowRequest());
+        clock.now = 10_000;
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        clock.now = 20_000;
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    // 试探请求被取消后，下一个请求可以重新试探，熔断器不会一直卡在 HALF_OPEN
+    @Test
+    public void cancelledTrialReleasesHalfOpen() {
+        ManualClock clock = new ManualClock();
+        CircuitBreaker breaker = new CircuitBreaker(1, 10_000, clock);
+        breaker.recordFailure();
+        clock.now = 10_000;
+        assertTrue(breaker.allowRequest());
+        breaker.recordCancelled();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    // 按 MusicAssistant 的重试循环回放一段 503/429 序列：固定种子的退避 + 手动时钟
+    @Test
+    public void scriptedOverloadRun() {
+        ManualClock clock = new ManualClock();
+        CircuitBreaker breaker = new CircuitBreaker(3, 30_000, clock);
+        RetryPolicy policy = new RetryPolicy(3, 500, 8000, new Random(7));
+        int[] statuses = {503, 503, 429, 503, 200};
+        String[] retryAfter = {null, null, "2", null, null};
+        int next = 0;
+
+        // 第一次提问：503 -> 503 -> 429(Retry-After: 2) 后熔断，第三次重试被直接拒绝
+        int attempt = 0;
+        boolean shortCircuited = false;
+        while (true) {
+            if (!breaker.allowRequest()) {
+                shortCircuited = true;
+                break;
+            }
+            int status = statuses[next];
+            String header = retryAfter[next];
+            next++;
+            if (status == 200) {
+                breaker.recordSuccess();
+                break;
+            }
+            breaker.recordFailure();
+            if (!RetryPolicy.isRetryableStatus(status) || !policy.shouldRetry(attempt)) {
+                break;
+            }
+            long delay = policy.delayFor(attempt, header);
+            assertTrue(delay >= 0);
+            clock.now += delay;
+            attempt++;
+        }
+        assertTrue(shortCircuited);
+        assertEquals(3, next);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, policy.getRetryAfterCount());
+
+        // 断开期间到达的提问都被拒绝，不发请求
+        assertFalse(breaker.allowRequest());
+        assertEquals(2, breaker.getShortCircuitCount());
+
+        // 30 秒后试探：503 让熔断器重新断开；再过 30 秒试探成功后恢复
+        clock.now += 30_000;
+        assertTrue(breaker.allowRequest());
+        assertEquals(503, statuses[next++]);
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        clock.now += 30_000;
+        assertTrue(breaker.allowRequest());
+        assertEquals(200, statuses[next++]);
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(2, breaker.getOpenCount());
+        assertEquals(statuses.length, next);
+    }
+}
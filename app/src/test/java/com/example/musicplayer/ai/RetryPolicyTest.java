@@ -0,0 +1,71 @@
+package com.example.musicplayer.ai;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void retryableStatuses() {
+        assertTrue(RetryPolicy.isRetryableStatus(429));
+        assertTrue(RetryPolicy.isRetryableStatus(503));
+        assertTrue(RetryPolicy.isRetryableStatus(504));
+        assertFalse(RetryPolicy.isRetryableStatus(400));
+        assertFalse(RetryPolicy.isRetryableStatus(401));
+        assertFalse(RetryPolicy.isRetryableStatus(501));
+    }
+
+    @Test
+    public void parsesRetryAfterSeconds() {
+        assertEquals(-1, RetryPolicy.parseRetryAfter(null));
+        assertEquals(-1, RetryPolicy.parseRetryAfter("soon"));
+        assertEquals(-1, RetryPolicy.parseRetryAfter("-3"));
+        assertEquals(0, RetryPolicy.parseRetryAfter("0"));
+        assertEquals(12_000, RetryPolicy.parseRetryAfter(" 12 "));
+    }
+
+    @Test
+    public void stopsAfterMaxRetries() {
+        RetryPolicy policy = new RetryPolicy(2, 500, 8000, new Random(1));
+        assertTrue(policy.shouldRetry(0));
+        assertTrue(policy.shouldRetry(1));
+        assertFalse(policy.shouldRetry(2));
+    }
+
+    // 同一个种子得到同样的退避序列，每次都不超过 min(max, base * 2^attempt)
+    @Test
+    public void jitteredBackoffIsSeededAndCapped() {
+        RetryPolicy a = new RetryPolicy(10, 500, 8000, new Random(42));
+        RetryPolicy b = new RetryPolicy(10, 500, 8000, new Random(42));
+        for (int attempt = 0; attempt < 10; attempt++) {
+            long delay = a.delayFor(attempt, null);
+            assertEquals(delay, b.delayFor(attempt, null));
+            long cap = Math.min(8000, 500L << attempt);
+            assertTrue(delay >= 0 && delay <= cap);
+        }
+        assertEquals(10, a.getRetryCount());
+        assertEquals(0, a.getRetryAfterCount());
+    }
+
+    // Retry-After 按原值等待，不被退避上限截断
+    @Test
+    public void honoursRetryAfterBeyondBackoffCap() {
+        RetryPolicy policy = new RetryPolicy(3, 500, 8000, new Random(1));
+        assertEquals(20_000, policy.delayFor(0, "20"));
+        assertEquals(1, policy.getRetryAfterCount());
+    }
+
+    // 要求等待超过上限时放弃重试
+    @Test
+    public void givesUpWhenRetryAfterTooLong() {
+        RetryPolicy policy = new RetryPolicy(3, 500, 8000, 30_000, new Random(1));
+        assertEquals(-1, policy.delayFor(0, "31"));
+        assertEquals(0, policy.getRetryCount());
+        assertEquals(30_000, policy.delayFor(0, "30"));
+    }
+}
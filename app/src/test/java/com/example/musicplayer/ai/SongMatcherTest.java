@@ -0,0 +1,109 @@
+package com.example.musicplayer.ai;
+
+import com.example.musicplayer.Track;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SongMatcherTest {
+
+    private static List<Track> tracks(String... names) {
+        List<Track> tracks = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            tracks.add(new Track(i, names[i] + ".mp3", names[i], null));
+        }
+        return tracks;
+    }
+
+    @Test
+    public void exactMatchWinsOverPrefixAndSubstring() {
+        SongMatcher matcher = new SongMatcher(tracks("晴天 Live", "晴天", "不能说的秘密", "晴天娃娃"));
+        assertEquals("晴天", matcher.findBest("晴天").getDisplayName());
+        List<Track> all = matcher.find("晴天", 10);
+        assertEquals(3, all.size());
+        assertEquals("晴天", all.get(0).getDisplayName());
+    }
+
+    @Test
+    public void ignoresCaseAndWhitespace() {
+        SongMatcher matcher = new SongMatcher(tracks("Yellow Submarine", "Let It Be"));
+        assertEquals("Let It Be", matcher.findBest("letitbe").getDisplayName());
+        assertEquals("Yellow Submarine", matcher.findBest("  SUBMARINE ").getDisplayName());
+    }
+
+    @Test
+    public void fuzzyMatchToleratesTypos() {
+        SongMatcher matcher = new SongMatcher(tracks("稻香", "七里香", "夜曲"));
+        assertEquals("七里香", matcher.findBest("七里香啊").getDisplayName());
+    }
+
+    @Test
+    public void singleCharacterQueryScansAllNames() {
+        SongMatcher matcher = new SongMatcher(tracks("稻香", "夜曲"));
+        assertEquals("夜曲", matcher.findBest("曲").getDisplayName());
+    }
+
+    @Test
+    public void noMatchReturnsNull() {
+        SongMatcher matcher = new SongMatcher(tracks("稻香", "夜曲"));
+        assertNull(matcher.findBest("完全无关的歌名"));
+        assertNull(matcher.findBest(""));
+        assertNull(new SongMatcher(tracks()).findBest("稻香"));
+    }
+
+    // 1 万首的曲库：建索引和查询耗时，对照逐个 contains 的线性查找
+    @Test
+    public void tenThousandTitles() {
+        Random random = new Random(1);
+        String[] words = {"love", "night", "rain", "summer", "blue", "city", "dream", "fire",
+                "heart", "river", "star", "moon", "road", "home", "light", "song"};
+        String[] names = new String[10_000];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]
+                    + " " + i;
+        }
+        List<Track> tracks = tracks(names);
+
+        long start = System.nanoTime();
+        SongMatcher matcher = new SongMatcher(tracks);
+        long buildUs = (System.nanoTime() - start) / 1000;
+
+        String[] queries = new String[1000];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = names[random.nextInt(names.length)];
+        }
+        start = System.nanoTime();
+        for (String query : queries) {
+            Track track = matcher.findBest(query);
+            assertNotNull(track);
+            assertEquals(query, track.getDisplayName());
+        }
+        long indexedUs = (System.nanoTime() - start) / 1000;
+
+        start = System.nanoTime();
+        int found = 0;
+        for (String query : queries) {
+            String q = SongMatcher.normalize(query);
+            for (Track track : tracks) {
+                if (SongMatcher.normalize(track.getDisplayName()).contains(q)) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        long linearUs = (System.nanoTime() - start) / 1000;
+        assertEquals(queries.length, found);
+
+        System.out.println("SongMatcher 10k titles: build " + buildUs + "us, 1000 queries indexed "
+                + indexedUs + "us, linear scan " + linearUs + "us");
+        assertTrue(matcher.findBest("dream").getDisplayName().contains("dream"));
+    }
+}